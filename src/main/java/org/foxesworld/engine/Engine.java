@@ -6,6 +6,8 @@ import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.config.Configurator;
+import org.foxesworld.engine.bootstrap.BootstrapGraph;
+import org.foxesworld.engine.bootstrap.BootstrapReport;
 import org.foxesworld.engine.config.Config;
 import org.foxesworld.engine.discord.Discord;
 import org.foxesworld.engine.gui.*;
@@ -16,8 +18,10 @@ import org.foxesworld.engine.gui.components.frame.OptionGroups;
 import org.foxesworld.engine.gui.components.panel.PanelVisibility;
 import org.foxesworld.engine.gui.styles.StyleProvider;
 import org.foxesworld.engine.locale.LanguageProvider;
+import org.foxesworld.engine.metrics.MetricsRegistry;
 import org.foxesworld.engine.news.News;
 import org.foxesworld.engine.service.ExecutorServiceProvider;
+import org.foxesworld.engine.service.LazyServiceRegistry;
 import org.foxesworld.engine.sound.Sound;
 import org.foxesworld.engine.utils.*;
 import org.foxesworld.engine.utils.Crypt.CryptUtils;
@@ -38,6 +42,7 @@ import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -66,10 +71,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public abstract class Engine implements ActionListener, GuiBuilderListener, FocusStatusListener {
     /** Background task provider. */
-    private final ExecutorServiceProvider executorServiceProvider;
+    private ExecutorServiceProvider executorServiceProvider;
 
     /** File properties and path helpers. */
-    protected final FileProperties fileProperties;
+    protected FileProperties fileProperties;
 
     /** Operating system MXBean. */
     private final OperatingSystemMXBean osBean;
@@ -84,7 +89,7 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
     private Map<String, Class<?>> configFiles = new HashMap<>();
 
     /** Application title (brand + version). */
-    private final String appTitle;
+    private String appTitle;
 
     /** Sound subsystem. */
     protected Sound SOUND;
@@ -99,15 +104,16 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
 
     protected ImageUtils imageUtils;
 
-    private News news;
-
     /** Shared engine logger (static for convenient access). */
     public static Logger LOGGER;
 
+    /** System property with the number of threads initialising the engine; {@code 0} initialises it serially. */
+    public static final String BOOTSTRAP_THREADS_PROPERTY = "launcher.bootstrapThreads";
+
     protected Discord discord;
 
     /** Font utilities. */
-    private final FontUtils FONTUTILS;
+    private FontUtils FONTUTILS;
 
     private IconUtils iconUtils;
 
@@ -129,7 +135,10 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
     /** Initialization flag. */
     protected final AtomicBoolean initialized = new AtomicBoolean(false);
 
-    private final EngineInfo engineInfo;
+    private EngineInfo engineInfo;
+
+    /** Services created on first use. */
+    private final LazyServiceRegistry services = new LazyServiceRegistry();
 
     private final BiHookSet<Void, Void> preInitHooks = new BiHookSet<>();
     private final BiHookSet<Void, Void> postInitHooks = new BiHookSet<>();
@@ -150,46 +159,69 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
             this.configFiles = configFiles;
         }
 
-        InputStreamReader reader = new InputStreamReader(
-                Objects.requireNonNull(this.getClass().getClassLoader().getResourceAsStream("buildInfo.json")),
-                StandardCharsets.UTF_8
-        );
-        this.engineInfo = new Gson().fromJson(reader, EngineInfo.class);
-        setEngineData(engineData.initEngineValues("engine.json"));
-        fileProperties = new FileProperties(this);
-        System.setProperty("log.dir", System.getProperty("user.dir"));
-        System.setProperty("log.level", engineData.getLogLevel());
-        LOGGER = LogManager.getLogger(this.getClass());
-        AnsiConsole.systemInstall();
-
-        Runtime.getRuntime().addShutdownHook(new Thread(AnsiConsole::systemUninstall));
-        appTitle = engineData.getLauncherBrand() + '-' + engineData.getLauncherVersion();
         this.panelVisibility = new PanelVisibility(this);
 
-        logEngineInfoBox(
-                LOGGER,
-                this.engineInfo.getEngineBrand(),
-                this.engineInfo.getEngineVersion(),
-                appTitle,
-                currentOS,
-                osBean,
-                engineData.getLogLevel(),
-                configFiles
-        );
-
-
-        this.FONTUTILS = new FontUtils(this);
-        setLogLevel(Level.valueOf(engineData.getLogLevel()));
-        executorServiceProvider = new ExecutorServiceProvider(poolSize, worker);
-
-        this.imageUtils = new ImageUtils();
-        FlatIntelliJLaf.setup();
-
-        //Basic Components Initialisation
-        this.LANG = new LanguageProvider(this, fileProperties.getLocaleFile(), 0);
-        this.SOUND = new Sound(this, getClass().getClassLoader().getResourceAsStream(fileProperties.getSoundsFile()));
-        this.frameConstructor = new FrameConstructor(this);
-        this.CRYPTO = new CryptUtils();
+        // Fields set by the phases below are published to this thread when the graph finishes
+        BootstrapReport report = new BootstrapGraph(Integer.getInteger(BOOTSTRAP_THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()))
+                .phase("buildInfo", () -> {
+                    InputStreamReader reader = new InputStreamReader(
+                            Objects.requireNonNull(this.getClass().getClassLoader().getResourceAsStream("buildInfo.json")),
+                            StandardCharsets.UTF_8
+                    );
+                    this.engineInfo = new Gson().fromJson(reader, EngineInfo.class);
+                })
+                .phase("engineData", () -> {
+                    setEngineData(engineData.initEngineValues("engine.json"));
+                    appTitle = engineData.getLauncherBrand() + '-' + engineData.getLauncherVersion();
+                })
+                .phase("lookAndFeel", FlatIntelliJLaf::setup)
+                .phase("logger", () -> {
+                    System.setProperty("log.dir", System.getProperty("user.dir"));
+                    System.setProperty("log.level", engineData.getLogLevel());
+                    LOGGER = LogManager.getLogger(this.getClass());
+                    AnsiConsole.systemInstall();
+                    Runtime.getRuntime().addShutdownHook(new Thread(AnsiConsole::systemUninstall));
+                    String metricsFile = System.getProperty(MetricsRegistry.METRICS_FILE_PROPERTY);
+                    if (metricsFile != null && !metricsFile.isBlank()) {
+                        MetricsRegistry.getInstance().dumpOnExit(Paths.get(metricsFile));
+                        LOGGER.info("Metrics will be written to {} on exit", metricsFile);
+                    }
+                    setLogLevel(Level.valueOf(engineData.getLogLevel()));
+                }, "engineData")
+                .phase("fileProperties", () -> fileProperties = new FileProperties(this), "engineData")
+                .phase("engineInfo", () -> logEngineInfoBox(
+                        LOGGER,
+                        this.engineInfo.getEngineBrand(),
+                        this.engineInfo.getEngineVersion(),
+                        appTitle,
+                        currentOS,
+                        osBean,
+                        engineData.getLogLevel(),
+                        configFiles
+                ), "buildInfo", "logger")
+                // ExecutorProgress builds Swing components, so the look and feel must be installed first
+                .phase("executor", () -> {
+                    executorServiceProvider = new ExecutorServiceProvider(poolSize, worker);
+                    HashService.getInstance().setExecutor(executorServiceProvider.getForkJoinPool());
+                }, "logger", "lookAndFeel")
+                .phase("utils", () -> {
+                    this.FONTUTILS = new FontUtils(this);
+                    this.imageUtils = new ImageUtils();
+                    this.CRYPTO = new CryptUtils();
+                })
+                //Basic Components Initialisation
+                .phase("lang", () -> this.LANG = new LanguageProvider(this, fileProperties.getLocaleFile(), 0),
+                        "logger", "fileProperties")
+                // Sound loads its sound list in the background, so it starts during bootstrap rather than on first use
+                .phase("sound", () -> this.SOUND = new Sound(this,
+                        getClass().getClassLoader().getResourceAsStream(fileProperties.getSoundsFile())),
+                        "fileProperties", "executor")
+                // The window is created on the constructing thread, as before
+                .callerPhase("frame", () -> this.frameConstructor = new FrameConstructor(this),
+                        "lookAndFeel", "lang", "utils")
+                .run();
+        report.log(LOGGER);
 
         preInit();
         init();
@@ -210,6 +242,24 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
         setGuiBuilder(new GuiBuilder(this));
         getGuiBuilder().getComponentFactory().setComponentFactoryListener(componentFactoryListener);
         getGuiBuilder().addGuiBuilderListener(this);
+        getGuiBuilder().addGuiBuilderListener(new GuiBuilderListener() {
+            @Override
+            public void onGuiBuilt() {
+            }
+
+            @Override
+            public void onPanelBuild(Map<String, OptionGroups> panels, String componentGroup, Container parentPanel) {
+            }
+
+            @Override
+            public void onPanelsBuilt() {
+                services.warmUp(executorServiceProvider);
+            }
+
+            @Override
+            public void onAdditionalPanelBuild(JPanel panel) {
+            }
+        });
         getGuiBuilder().buildGuiAsync(fileProperties.getFrameTpl(), getFrame().getRootPanel());
         this.setIconUtils(new IconUtils(this));
     }
@@ -566,12 +616,14 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
     }
 
     /**
-     * Returns server information.
+     * Returns server information. The engine does not create it: a launcher that polls servers assigns
+     * {@link #serverInfo} or registers it with
+     * {@code getServices().register(ServerInfo.class, () -> new ServerInfo(this))}.
      *
-     * @return {@link ServerInfo} or {@code null}.
+     * @return {@link ServerInfo}, or {@code null} if the launcher did neither.
      */
     public ServerInfo getServerInfo() {
-        return serverInfo;
+        return serverInfo != null ? serverInfo : services.get(ServerInfo.class);
     }
 
     /**
@@ -580,7 +632,7 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
      * @return {@link Discord} or {@code null}.
      */
     public Discord getDiscord() {
-        return discord;
+        return discord != null ? discord : services.get(Discord.class);
     }
 
     /**
@@ -643,7 +695,7 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
      * @param news a {@link News} instance.
      */
     public void setNews(News news) {
-        this.news = news;
+        services.set(News.class, news);
     }
 
     /**
@@ -652,7 +704,7 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
      * @return {@link News} or {@code null}.
      */
     public News getNews() {
-        return news;
+        return services.get(News.class);
     }
 
     /**
@@ -673,6 +725,16 @@ public abstract class Engine implements ActionListener, GuiBuilderListener, Focu
         return CRYPTO;
     }
 
+    /**
+     * Returns the registry of services created on first use. Launchers register their optional
+     * services here, e.g. {@code getServices().register(Discord.class, () -> new Discord(this, "icon"))}.
+     *
+     * @return {@link LazyServiceRegistry}.
+     */
+    public LazyServiceRegistry getServices() {
+        return services;
+    }
+
     /**
      * Returns the application configuration object.
      *
@@ -75,12 +75,55 @@ public class EngineData {
 
     public static class DownloadManager {
         private int downloadThreads;
+        private Boolean objectStore;
+        private boolean pipeline;
+        private List<String> extractArchives;
+        private List<String> mirrors;
+        private int bandwidthLimit;
+        private Map<String, Integer> bandwidthWeights;
         private List<ReplaceMask> replaceMasks;
 
         public int getDownloadThreads() {
             return downloadThreads;
         }
 
+        public boolean isObjectStoreEnabled() {
+            return objectStore == null || objectStore;
+        }
+
+        /**
+         * @return whether {@code getFilesToDownload} updates the client through the staged pipeline
+         */
+        public boolean isPipelineEnabled() {
+            return pipeline;
+        }
+
+        /**
+         * @return path prefixes of listed {@code .zip} files that the update pipeline extracts after
+         *         installing them, may be {@code null}
+         */
+        public List<String> getExtractArchives() {
+            return extractArchives;
+        }
+
+        public List<String> getMirrors() {
+            return mirrors;
+        }
+
+        /**
+         * @return download bandwidth limit in KB/s, {@code 0} for no limit
+         */
+        public int getBandwidthLimit() {
+            return bandwidthLimit;
+        }
+
+        /**
+         * @return share weights by file class name (libraries, assets, mods, other), may be {@code null}
+         */
+        public Map<String, Integer> getBandwidthWeights() {
+            return bandwidthWeights;
+        }
+
         public List<ReplaceMask> getReplaceMasks() {
             return replaceMasks;
         }
@@ -0,0 +1,203 @@
+package org.foxesworld.engine.bootstrap;
+
+import org.foxesworld.engine.metrics.MetricsRegistry;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Start-up steps with declared dependencies, run as concurrently as the dependencies allow.
+ * <p>
+ * Every phase names the phases it needs. A phase starts as soon as all of them are finished, so
+ * independent subsystems (e.g. parsing configuration and setting up the look and feel) initialise side by side
+ * on a short-lived pool. Phases that must stay on the constructing thread, such as creating the main window,
+ * are added with {@link #callerPhase}. Dependencies must be declared before the phases that use them, which
+ * keeps the graph free of cycles.
+ * </p>
+ * <p>
+ * {@link #run()} returns a {@link BootstrapReport} with the timeline of all phases and the critical path,
+ * the chain of phases that decided how long the start-up took.
+ * </p>
+ */
+public class BootstrapGraph {
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger(1);
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final int threads;
+
+    /**
+     * @param threads maximum number of pool threads; {@code 0} runs every phase on the calling thread
+     *                in declaration order
+     */
+    public BootstrapGraph(int threads) {
+        this.threads = Math.max(0, threads);
+    }
+
+    /**
+     * Adds a phase that may run on any thread.
+     *
+     * @param name      unique phase name
+     * @param action    the work of the phase
+     * @param dependsOn names of phases that must finish first
+     * @return this graph
+     */
+    public BootstrapGraph phase(String name, Runnable action, String... dependsOn) {
+        return add(name, action, false, dependsOn);
+    }
+
+    /**
+     * Adds a phase that runs on the thread calling {@link #run()}, e.g. one creating Swing windows.
+     *
+     * @see #phase(String, Runnable, String...)
+     */
+    public BootstrapGraph callerPhase(String name, Runnable action, String... dependsOn) {
+        return add(name, action, true, dependsOn);
+    }
+
+    /**
+     * Runs all phases and waits for them.
+     * <p>
+     * If a phase fails, the phases depending on it are skipped and its exception is rethrown once the
+     * other phases are done: unchecked exceptions as they are, checked ones wrapped in an
+     * {@link IllegalStateException}.
+     * </p>
+     *
+     * @return the timeline of the run
+     */
+    public BootstrapReport run() {
+        long origin = System.nanoTime();
+        List<Phase> asyncPhases = phases.values().stream().filter(phase -> !phase.onCaller).toList();
+        int poolSize = Math.min(threads, asyncPhases.size());
+        ExecutorService pool = poolSize == 0 ? null : Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "bootstrap-" + THREAD_NUMBER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Phases of the calling thread get their future first, pool phases may depend on them
+            List<Phase> callerPhases = new ArrayList<>();
+            for (Phase phase : phases.values()) {
+                if (pool == null || phase.onCaller) {
+                    phase.done = new CompletableFuture<>();
+                    callerPhases.add(phase);
+                } else {
+                    phase.done = dependencies(phase).thenRunAsync(() -> phase.execute(origin), pool);
+                }
+            }
+            for (Phase phase : callerPhases) {
+                runOnCaller(phase, origin);
+            }
+            CompletableFuture.allOf(phases.values().stream().map(phase -> phase.done.exceptionally(e -> null))
+                    .toArray(CompletableFuture[]::new)).join();
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        for (Phase phase : phases.values()) {
+            Throwable failure = phase.failure;
+            if (failure instanceof RuntimeException runtime) {
+                throw runtime;
+            } else if (failure instanceof Error error) {
+                throw error;
+            } else if (failure != null) {
+                throw new IllegalStateException("Bootstrap phase " + phase.name + " failed", failure);
+            }
+        }
+        return report(System.nanoTime() - origin);
+    }
+
+    private BootstrapGraph add(String name, Runnable action, boolean onCaller, String... dependsOn) {
+        if (phases.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate bootstrap phase: " + name);
+        }
+        List<Phase> dependencies = new ArrayList<>(dependsOn.length);
+        for (String dependency : dependsOn) {
+            Phase phase = phases.get(dependency);
+            if (phase == null) {
+                throw new IllegalArgumentException("Bootstrap phase " + name + " depends on " + dependency
+                        + ", which is not declared before it");
+            }
+            dependencies.add(phase);
+        }
+        phases.put(name, new Phase(name, action, onCaller, dependencies));
+        return this;
+    }
+
+    private static CompletableFuture<Void> dependencies(Phase phase) {
+        return CompletableFuture.allOf(phase.dependencies.stream().map(dependency -> dependency.done)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private static void runOnCaller(Phase phase, long origin) {
+        try {
+            dependencies(phase).join();
+            phase.execute(origin);
+            phase.done.complete(null);
+        } catch (CompletionException e) {
+            phase.done.completeExceptionally(e.getCause());
+        }
+    }
+
+    private BootstrapReport report(long totalNanos) {
+        List<BootstrapReport.PhaseTiming> timeline = new ArrayList<>(phases.size());
+        for (Phase phase : phases.values()) {
+            timeline.add(new BootstrapReport.PhaseTiming(phase.name, phase.threadName, phase.startNanos,
+                    phase.endNanos - phase.startNanos,
+                    phase.dependencies.stream().map(dependency -> dependency.name).toList()));
+        }
+        return new BootstrapReport(timeline, criticalPath(), totalNanos);
+    }
+
+    /**
+     * Follows the phases that finished last back from the end of the start-up.
+     */
+    private List<String> criticalPath() {
+        Phase last = phases.values().stream().max(Comparator.comparingLong(phase -> phase.endNanos)).orElse(null);
+        Deque<String> path = new ArrayDeque<>();
+        while (last != null) {
+            path.addFirst(last.name);
+            last = last.dependencies.stream().max(Comparator.comparingLong(phase -> phase.endNanos)).orElse(null);
+        }
+        return List.copyOf(path);
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final Runnable action;
+        private final boolean onCaller;
+        private final List<Phase> dependencies;
+        private CompletableFuture<Void> done;
+        private volatile Throwable failure;
+        private volatile String threadName;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        private Phase(String name, Runnable action, boolean onCaller, List<Phase> dependencies) {
+            this.name = name;
+            this.action = action;
+            this.onCaller = onCaller;
+            this.dependencies = dependencies;
+        }
+
+        private void execute(long origin) {
+            threadName = Thread.currentThread().getName();
+            long started = System.nanoTime();
+            startNanos = started - origin;
+            try {
+                action.run();
+            } catch (Throwable e) {
+                failure = e;
+                throw new CompletionException(e);
+            } finally {
+                endNanos = System.nanoTime() - origin;
+                MetricsRegistry.getInstance().recordSince("bootstrap." + name + ".nanos", started);
+            }
+        }
+    }
+}
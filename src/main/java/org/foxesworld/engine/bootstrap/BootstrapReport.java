@@ -0,0 +1,57 @@
+package org.foxesworld.engine.bootstrap;
+
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Timeline of a {@link BootstrapGraph} run. Times are in nanoseconds from the start of the run.
+ *
+ * @param phases       all phases in declaration order
+ * @param criticalPath names of the phases on the critical path, first to last
+ * @param totalNanos   wall time of the whole run
+ */
+public record BootstrapReport(List<PhaseTiming> phases, List<String> criticalPath, long totalNanos) {
+
+    /**
+     * Timing of one phase.
+     */
+    public record PhaseTiming(String name, String thread, long startNanos, long durationNanos, List<String> dependsOn) {
+    }
+
+    /**
+     * Sum of the phase durations, i.e. how long the start-up would take with every phase run one after another.
+     */
+    public long serialNanos() {
+        return phases.stream().mapToLong(PhaseTiming::durationNanos).sum();
+    }
+
+    /**
+     * Logs the critical path at info level and the full timeline at debug level.
+     */
+    public void log(Logger logger) {
+        StringBuilder path = new StringBuilder();
+        for (String name : criticalPath) {
+            PhaseTiming timing = phases.stream().filter(phase -> phase.name().equals(name)).findFirst().orElseThrow();
+            if (!path.isEmpty()) {
+                path.append(" -> ");
+            }
+            path.append(name).append(' ').append(millis(timing.durationNanos())).append(" ms");
+        }
+        logger.info("Bootstrap finished in {} ms ({} ms of work), critical path: {}",
+                millis(totalNanos), millis(serialNanos()), path);
+        if (logger.isDebugEnabled()) {
+            StringBuilder timeline = new StringBuilder("Bootstrap timeline:");
+            for (PhaseTiming phase : phases) {
+                timeline.append(String.format("%n  %s %-16s +%6d ms %6d ms  %-12s after %s",
+                        criticalPath.contains(phase.name()) ? "*" : " ", phase.name(), millis(phase.startNanos()),
+                        millis(phase.durationNanos()), phase.thread(), phase.dependsOn()));
+            }
+            logger.debug(timeline.toString());
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
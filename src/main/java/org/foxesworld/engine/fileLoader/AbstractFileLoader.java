@@ -1,12 +1,27 @@
 package org.foxesworld.engine.fileLoader;
 
 import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.EngineData;
+import org.foxesworld.engine.fileLoader.pipeline.StageStats;
+import org.foxesworld.engine.fileLoader.pipeline.StagedPipeline;
+import org.foxesworld.engine.utils.Download.ZipExtractor;
 
 import javax.swing.*;
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -16,14 +31,20 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractFileLoader {
 
+    // Ёмкость очереди между стадиями конвейера обновления
+    protected static final int PIPELINE_QUEUE_SIZE = 256;
+
     protected final Engine engine;
     protected final ILoadingManager loadingManager;
     protected final IFileFetcher fileFetcher;
     protected final IFileValidator fileValidator;
+    protected final FileStateIndex fileStateIndex;
+    protected final ObjectStore objectStore;
     protected final IDownloadUtils downloadUtils;
 
     protected final AtomicBoolean isCancelled = new AtomicBoolean(false);
-    protected final Set<String> filesToKeep = new HashSet<>();
+    // Читается потоками проверки и конвейера, пополняется из колбэков слушателя
+    protected final Set<String> filesToKeep = ConcurrentHashMap.newKeySet();
     protected Set<FileAttributes> fileAttributes = new HashSet<>();
 
     protected String homeDir;
@@ -31,11 +52,19 @@ public abstract class AbstractFileLoader {
     protected String version;
     protected IFileLoaderListener fileLoaderListener;
 
-    protected FileAttributes currentFile;
+    // Файл и расширение текущего потока загрузки: слушатель вызывается синхронно из потока воркера
+    protected final ThreadLocal<FileAttributes> currentFile = new ThreadLocal<>();
     protected long totalSize = -1;
-    protected String fileExtension;
+    protected final ThreadLocal<String> fileExtension = new ThreadLocal<>();
+    protected final Map<FileAttributes, CompletableFuture<FileAttributes>> downloadFutures = new ConcurrentHashMap<>();
+    // Файлы, уже признанные недействительными при построении списка, повторно не проверяются
+    protected final Set<FileAttributes> knownInvalid = ConcurrentHashMap.newKeySet();
+    // Файлы, о которых слушатель уже узнал в текущем получении списка, включая прерванные попытки
+    protected final Set<String> announcedFiles = ConcurrentHashMap.newKeySet();
+    protected volatile DownloadQueue downloadQueue;
     protected final AtomicInteger filesDownloaded = new AtomicInteger(0);
     protected boolean forceUpdate = false;
+    protected volatile StagedPipeline<FileAttributes> pipeline;
 
     public AbstractFileLoader(Engine engine,
                               ILoadingManager loadingManager,
@@ -48,9 +77,17 @@ public abstract class AbstractFileLoader {
         this.engine = engine;
         this.loadingManager = loadingManager;
         this.fileFetcher = fileFetcher;
-        this.fileValidator = fileValidator;
         this.downloadUtils = downloadUtils;
         this.homeDir = homeDir.endsWith(File.separator) ? homeDir : homeDir + File.separator;
+        this.fileStateIndex = new FileStateIndex(Paths.get(this.homeDir));
+        this.fileValidator = new IndexedFileValidator(fileValidator, fileStateIndex);
+        EngineData.DownloadManager downloadManager = engine.getEngineData().getDownloadManager();
+        this.objectStore = downloadManager == null || downloadManager.isObjectStoreEnabled()
+                ? new ObjectStore(Paths.get(this.homeDir, ObjectStore.DIR_NAME), fileStateIndex)
+                : null;
+        this.fileFetcher.setManifestCache(new ManifestCache(Paths.get(this.homeDir, ManifestCache.DIR_NAME)));
+        this.downloadUtils.setFileStateIndex(fileStateIndex);
+        this.downloadUtils.setChunkSource(filename -> this.fileFetcher.fetchChunkManifest(this.client, this.version, filename));
         this.client = client;
         this.version = version;
     }
@@ -58,9 +95,19 @@ public abstract class AbstractFileLoader {
     /**
      * Запуск процесса получения списка файлов для загрузки.
      *
+     * <p>
+     * Если в {@code downloadManager} включён {@code pipeline}, клиент обновляется через
+     * {@link #updateFiles(boolean)} с его порядком событий слушателя.
+     * </p>
+     *
      * @param forceUpdate принудительное обновление списка
      */
     public void getFilesToDownload(boolean forceUpdate) {
+        EngineData.DownloadManager downloadManager = engine.getEngineData().getDownloadManager();
+        if (downloadManager != null && downloadManager.isPipelineEnabled()) {
+            updateFiles(forceUpdate);
+            return;
+        }
         this.forceUpdate = forceUpdate;
         if (!isClientDataValid(client, version)) {
             Engine.LOGGER.warn("Invalid client data: client={}, version={}", client, version);
@@ -69,13 +116,227 @@ public abstract class AbstractFileLoader {
 
         loadingManager.toggleVisibility();
         loadingManager.setLoadingText("file.gettingFiles-desc", "file.gettingFiles-title");
+        announcedFiles.clear();
+        fetchFileList();
+    }
 
-        fileFetcher.fetchDownloadList(client, version, getPlatformNumber())
-                .thenAcceptAsync(attributes -> processFileAttributes(attributes, forceUpdate))
+    /**
+     * Получает и проверяет список файлов. При повторной попытке список приходит заново, но слушатель
+     * получает {@link IFileLoaderListener#onFileAdd(FileAttributes)} только для ещё не объявленных файлов.
+     */
+    protected void fetchFileList() {
+        // Записи списка проверяются по мере разбора ответа, не дожидаясь его конца
+        List<FileAttributes> received = new ArrayList<>();
+        Set<FileAttributes> toDownload = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> checks = new ArrayList<>();
+        ExecutorService checkExecutor = createCheckExecutor();
+
+        fileFetcher.fetchDownloadList(client, version, getPlatformNumber(), attribute -> {
+                    if (announcedFiles.add(attribute.getFilename())) {
+                        fileLoaderListener.onFileAdd(attribute);
+                    }
+                    received.add(attribute);
+                    if (forceUpdate) {
+                        toDownload.add(attribute);
+                    } else if (!filesToKeep.contains(attribute.getFilename())) {
+                        checks.add(CompletableFuture.runAsync(() -> {
+                            if (shouldDownloadFile(attribute)) {
+                                toDownload.add(attribute);
+                            }
+                        }, checkExecutor));
+                    }
+                })
+                .thenCompose(count -> CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0])))
+                .whenComplete((ignored, error) -> checkExecutor.shutdown())
+                .thenRun(() -> {
+                    Engine.LOGGER.debug("Checked {} listed files, {} to download", received.size(), toDownload.size());
+                    forgetRemovedFiles(fileFetcher.getLastDiff());
+                    completeFileList(new HashSet<>(toDownload));
+                })
                 .thenRun(this::onFilesProcessed)
                 .exceptionally(this::handleFileListRetrievalError);
     }
 
+    /**
+     * Обновление клиента одним конвейером: получение списка, проверка локальных файлов, загрузка,
+     * проверка хеша и установка идут одновременно.
+     * <p>
+     * Каждая запись списка проходит стадии {@code check}, {@code download}, {@code verify} и {@code install}
+     * сразу после разбора, не дожидаясь конца списка. Стадии связаны ограниченными очередями, поэтому
+     * медленная стадия притормаживает предыдущие. Вместо {@link IFileLoaderListener#onFilesRead()} и
+     * {@link IFileLoaderListener#filesProcessed()} слушатель получает {@link IFileLoaderListener#onDownloadStart()}
+     * в начале и {@link IFileLoaderListener#onFilesLoaded()} после установки последнего файла;
+     * {@link #downloadFiles()} вызывать не нужно.
+     * </p>
+     *
+     * @param forceUpdate загрузить все файлы списка без проверки локальных копий
+     */
+    public void updateFiles(boolean forceUpdate) {
+        this.forceUpdate = forceUpdate;
+        if (!isClientDataValid(client, version)) {
+            Engine.LOGGER.warn("Invalid client data: client={}, version={}", client, version);
+            return;
+        }
+        loadingManager.toggleVisibility();
+        loadingManager.setLoadingText("file.gettingFiles-desc", "file.gettingFiles-title");
+
+        Set<FileAttributes> toDownload = ConcurrentHashMap.newKeySet();
+        DownloadProgress progress = downloadUtils.getProgress();
+        downloadUtils.setTotalSize(0);
+        this.totalSize = 0;
+        this.fileAttributes = toDownload;
+        StagedPipeline<FileAttributes> pipeline = createPipeline(toDownload, progress);
+        this.pipeline = pipeline;
+        fileLoaderListener.onDownloadStart();
+
+        fileFetcher.fetchDownloadList(client, version, getPlatformNumber(), attribute -> {
+                    fileLoaderListener.onFileAdd(attribute);
+                    try {
+                        pipeline.submit(attribute);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        pipeline.cancel();
+                    }
+                })
+                .whenComplete((count, error) -> {
+                    if (error != null) {
+                        pipeline.fail(error);
+                        return;
+                    }
+                    forgetRemovedFiles(fileFetcher.getLastDiff());
+                    pipeline.close();
+                });
+
+        pipeline.getCompletion().whenComplete((ignored, error) -> {
+            fileStateIndex.save();
+            Engine.LOGGER.info("Pipeline stages: {}", pipeline.getStats());
+            if (isCancelled.get()) {
+                return;
+            }
+            if (error != null) {
+                handleDownloadError(error);
+            } else {
+                fileLoaderListener.onFilesLoaded();
+            }
+        });
+    }
+
+    /**
+     * Собирает конвейер обновления. Наследники могут изменить размеры пулов и очередей или добавить стадии.
+     *
+     * @param toDownload множество, в которое попадают файлы, требующие загрузки
+     * @param progress   прогресс загрузки, растущий по мере поступления файлов, может быть {@code null}
+     * @return ещё не запущенный конвейер
+     */
+    protected StagedPipeline<FileAttributes> createPipeline(Set<FileAttributes> toDownload, DownloadProgress progress) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        EngineData.DownloadManager downloadManager = engine.getEngineData().getDownloadManager();
+        int downloadThreads = downloadManager != null && downloadManager.getDownloadThreads() > 0
+                ? downloadManager.getDownloadThreads() : DownloadQueue.DEFAULT_THREADS;
+        // Целые архивы, которые не были распакованы, проходят только установку
+        Set<FileAttributes> installOnly = ConcurrentHashMap.newKeySet();
+        return new StagedPipeline<FileAttributes>("update", FileAttributes::getSize)
+                .addStage("check", processors, PIPELINE_QUEUE_SIZE, attribute -> {
+                    if (!forceUpdate && filesToKeep.contains(attribute.getFilename())) {
+                        return false;
+                    }
+                    if (!forceUpdate && !shouldDownloadFile(attribute)) {
+                        if (!isExtractedArchive(attribute) || Files.isDirectory(getExtractionDir(getLocalPath(attribute)))) {
+                            return false;
+                        }
+                        installOnly.add(attribute);
+                        return true;
+                    }
+                    toDownload.add(attribute);
+                    if (progress != null) {
+                        progress.addTotal(attribute.getSize());
+                    }
+                    return true;
+                })
+                .addStage("download", downloadThreads, PIPELINE_QUEUE_SIZE, attribute -> {
+                    if (isCancelled.get()) {
+                        return false;
+                    }
+                    if (installOnly.contains(attribute)) {
+                        return true;
+                    }
+                    transferFile(attribute, getLocalPath(attribute));
+                    return true;
+                })
+                .addStage("verify", Math.max(1, processors / 2), PIPELINE_QUEUE_SIZE, attribute -> {
+                    Path localFile = getLocalPath(attribute);
+                    if (fileValidator.isInvalidFile(localFile.toFile(), attribute.getHash(), attribute.getSize())) {
+                        throw new java.io.IOException("Downloaded file does not match the list: " + attribute.getFilename());
+                    }
+                    return true;
+                })
+                .addStage("install", 2, PIPELINE_QUEUE_SIZE, attribute -> {
+                    Path localFile = getLocalPath(attribute);
+                    storeDownloadedFile(attribute, localFile);
+                    installFile(attribute, localFile);
+                    return false;
+                })
+                .start();
+    }
+
+    /**
+     * Последняя стадия конвейера для проверенного файла. По умолчанию распаковывает архивы из
+     * {@code downloadManager.extractArchives} в каталог {@link #getExtractionDir(Path)}.
+     *
+     * @param attribute файл из списка
+     * @param localFile путь к установленному файлу
+     * @throws Exception при ошибке установки
+     */
+    protected void installFile(FileAttributes attribute, Path localFile) throws Exception {
+        if (isExtractedArchive(attribute)) {
+            Path targetDir = getExtractionDir(localFile);
+            Engine.LOGGER.debug("Extracting {} to {}", attribute.getFilename(), targetDir);
+            ZipExtractor.extract(localFile, targetDir);
+        }
+    }
+
+    /**
+     * Проверяет, распаковывается ли файл после установки: это {@code .zip}, путь которого относительно
+     * каталога клиента начинается с одного из префиксов {@code downloadManager.extractArchives}.
+     */
+    protected boolean isExtractedArchive(FileAttributes attribute) {
+        EngineData.DownloadManager downloadManager = engine.getEngineData().getDownloadManager();
+        List<String> prefixes = downloadManager != null ? downloadManager.getExtractArchives() : null;
+        if (prefixes == null || !attribute.getFilename().toLowerCase().endsWith(".zip")) {
+            return false;
+        }
+        String localPath = attribute.getFilename().replace(attribute.getReplaceMask(), "").replace('\\', '/');
+        for (String prefix : prefixes) {
+            if (localPath.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Каталог распаковки архива: рядом с архивом, с тем же именем без {@code .zip}. Распакованных файлов
+     * нет в списке клиента, поэтому каталог нужно исключить из проверки {@code FileGuard}.
+     */
+    protected Path getExtractionDir(Path archive) {
+        String name = archive.getFileName().toString();
+        return archive.resolveSibling(name.substring(0, name.length() - ".zip".length()));
+    }
+
+    /**
+     * Создаёт пул проверки локальных файлов, работающий параллельно с получением списка.
+     *
+     * @return пул потоков, закрываемый после проверки всего списка
+     */
+    protected ExecutorService createCheckExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "file-check-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     protected boolean isClientDataValid(String client, String version) {
         return client != null && !client.isEmpty() && version != null && !version.isEmpty();
     }
@@ -86,14 +347,32 @@ public abstract class AbstractFileLoader {
             fileLoaderListener.onFileAdd(attribute);
         }
 
-        Engine.LOGGER.info("Keeping {} files", filesToKeep.size());
-        loadingManager.setLoadingText("file.listBuilt-desc", "file.listBuilt-title");
-
         if (forceUpdate) {
-            this.fileAttributes = new HashSet<>(java.util.Arrays.asList(attributes));
+            completeFileList(new HashSet<>(java.util.Arrays.asList(attributes)));
         } else {
-            this.fileAttributes = filterFileAttributes(attributes);
+            completeFileList(filterFileAttributes(attributes));
+        }
+    }
+
+    // Удалённые с сервера файлы больше не отслеживаются индексом, сами файлы убирает FileGuard
+    protected void forgetRemovedFiles(ManifestDiff diff) {
+        if (diff == null) {
+            return;
         }
+        for (FileAttributes removed : diff.getRemoved()) {
+            if (removed.getReplaceMask() != null) {
+                fileStateIndex.remove(getLocalPath(removed));
+            }
+        }
+    }
+
+    // Завершение построения списка: файлы к загрузке известны, индекс состояния сохраняется
+    protected void completeFileList(Set<FileAttributes> files) {
+        Engine.LOGGER.info("Keeping {} files", filesToKeep.size());
+        loadingManager.setLoadingText("file.listBuilt-desc", "file.listBuilt-title");
+
+        this.fileAttributes = files;
+        fileStateIndex.save();
 
         fileLoaderListener.onFilesRead();
     }
@@ -108,11 +387,23 @@ public abstract class AbstractFileLoader {
     public boolean shouldDownloadFile(FileAttributes attribute) {
         String localPath = attribute.getFilename().replace(attribute.getReplaceMask(), "");
         File localFile = new File(homeDir, localPath);
-        return fileValidator.isInvalidFile(localFile, attribute.getHash(), attribute.getSize());
+        boolean invalid = fileValidator.isInvalidFile(localFile, attribute.getHash(), attribute.getSize());
+        if (invalid) {
+            knownInvalid.add(attribute);
+        } else if (objectStore != null) {
+            // Уже установленные файлы пополняют хранилище для остальных клиентов
+            objectStore.ingest(localFile.toPath(), attribute.getHash());
+        }
+        return invalid;
     }
 
     /**
      * Запуск процесса загрузки файлов.
+     * <p>
+     * Файлы раздаются пулу {@link DownloadQueue} размером {@code downloadManager.downloadThreads},
+     * крупные файлы уходят в работу первыми. {@link IFileLoaderListener#onFilesLoaded()} вызывается
+     * только после того, как отработали загрузки всех файлов.
+     * </p>
      */
     public void downloadFiles() {
         int totalFiles = fileAttributes.size();
@@ -125,26 +416,108 @@ public abstract class AbstractFileLoader {
         downloadUtils.setTotalSize(totalSize);
 
         fileLoaderListener.onDownloadStart();
-        // Асинхронно обрабатываем каждый файл
-        fileAttributes.forEach(attribute ->
-                CompletableFuture.runAsync(() -> downloadFile(attribute, totalFiles))
-        );
+        DownloadQueue queue = createDownloadQueue();
+        this.downloadQueue = queue;
+        downloadFutures.clear();
+
+        List<CompletableFuture<FileAttributes>> futures = fileAttributes.stream()
+                .sorted(Comparator.comparingLong(FileAttributes::getSize).reversed())
+                .map(attribute -> {
+                    CompletableFuture<FileAttributes> future = queue.submit(attribute, file -> downloadFile(file, totalFiles));
+                    downloadFutures.put(attribute, future);
+                    return future;
+                })
+                .toList();
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, error) -> {
+                    queue.shutdown();
+                    fileStateIndex.save();
+                    if (isCancelled.get()) {
+                        return;
+                    }
+                    if (error != null) {
+                        handleDownloadError(error);
+                    } else {
+                        fileLoaderListener.onFilesLoaded();
+                    }
+                });
+    }
+
+    /**
+     * Создаёт очередь загрузки. Наследники могут переопределить размер пула или реализацию.
+     *
+     * @return новая очередь загрузки
+     */
+    protected DownloadQueue createDownloadQueue() {
+        return DownloadQueue.fromEngineData(engine.getEngineData());
     }
 
     protected void downloadFile(FileAttributes attribute, int totalFiles) {
         if (isCancelled.get()) {
             return;
         }
-        this.currentFile = attribute;
-        fileExtension = getFileExtension(attribute.getFilename());
-        fileLoaderListener.onNewFileFound(this);
+        Path localFile = getLocalPath(attribute);
+        if (transferFile(attribute, localFile)) {
+            storeDownloadedFile(attribute, localFile);
+        }
+    }
 
-        filesDownloaded.incrementAndGet();
-        if (filesDownloaded.get() == totalFiles) {
-            fileLoaderListener.onFilesLoaded();
+    /**
+     * Получает файл из общего хранилища или через слушателя.
+     *
+     * @return {@code true}, если файл скачан слушателем, {@code false}, если он взят из общего хранилища
+     */
+    protected boolean transferFile(FileAttributes attribute, Path localFile) {
+        if (objectStore != null && objectStore.materialize(attribute.getHash(), attribute.getSize(), localFile)) {
+            Engine.LOGGER.debug("{} linked from the shared store", attribute.getFilename());
+            filesDownloaded.incrementAndGet();
+            // Размер файла входит в общий объём загрузки в обоих режимах, поэтому засчитывается и здесь
+            DownloadProgress progress = downloadUtils.getProgress();
+            if (progress != null) {
+                progress.add(attribute.getSize());
+            }
+            return false;
+        }
+        currentFile.set(attribute);
+        fileExtension.set(getFileExtension(attribute.getFilename()));
+        try {
+            fileLoaderListener.onNewFileFound(this);
+            filesDownloaded.incrementAndGet();
+            return true;
+        } finally {
+            currentFile.remove();
+            fileExtension.remove();
+        }
+    }
+
+    // Проверенный при скачивании файл становится доступен остальным клиентам через общее хранилище
+    protected void storeDownloadedFile(FileAttributes attribute, Path localFile) {
+        if (objectStore == null) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(localFile, BasicFileAttributes.class);
+            if (attribute.getHash() != null && attribute.getHash().equalsIgnoreCase(fileStateIndex.getVerifiedHash(localFile, attributes))) {
+                objectStore.ingest(localFile, attribute.getHash());
+            }
+        } catch (java.io.IOException ignored) {
+            // Файл не был сохранён слушателем, хранить нечего
         }
     }
 
+    protected Path getLocalPath(FileAttributes attribute) {
+        String localPath = attribute.getFilename().replace(attribute.getReplaceMask(), "");
+        return Paths.get(homeDir, localPath);
+    }
+
+    // Обработка ошибок загрузки отдельных файлов.
+    protected void handleDownloadError(Throwable e) {
+        Throwable cause = e instanceof java.util.concurrent.CompletionException && e.getCause() != null ? e.getCause() : e;
+        Engine.LOGGER.error("Error downloading files: {}", cause.getMessage(), cause);
+        SwingUtilities.invokeLater(() -> loadingManager.setLoadingText(cause.getMessage(), "error.file"));
+    }
+
     protected int getPlatformNumber() {
         String osName = System.getProperty("os.name").toLowerCase();
         if (osName.contains("win")) {
@@ -175,6 +548,18 @@ public abstract class AbstractFileLoader {
 
     public void cancel() {
         isCancelled.set(true);
+        DownloadQueue queue = this.downloadQueue;
+        if (queue != null) {
+            queue.cancel();
+        }
+        StagedPipeline<FileAttributes> pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+        DownloadProgress progress = downloadUtils.getProgress();
+        if (progress != null) {
+            progress.stop();
+        }
         fileLoaderListener.onCancel();
     }
 
@@ -182,6 +567,9 @@ public abstract class AbstractFileLoader {
         if (totalSize == -1) {
             totalSize = fileAttributes.stream()
                     .mapToLong(attribute -> {
+                        if (knownInvalid.contains(attribute)) {
+                            return attribute.getSize();
+                        }
                         String localPath = attribute.getFilename().replace(attribute.getReplaceMask(), "");
                         File localFile = new File(homeDir, localPath);
                         return (localFile.exists() && !fileValidator.isInvalidFile(localFile, attribute.getHash(), attribute.getSize()))
@@ -195,12 +583,35 @@ public abstract class AbstractFileLoader {
     public String getHomeDir() { return homeDir; }
     public String getClient() { return client; }
     public String getVersion() { return version; }
-    public FileAttributes getCurrentFile() { return currentFile; }
-    public String getFileExtension() { return fileExtension; }
+    public FileAttributes getCurrentFile() { return currentFile.get(); }
+    public String getFileExtension() { return fileExtension.get(); }
     public IDownloadUtils getDownloadUtils() { return downloadUtils; }
     public Set<String> getFilesToKeep() { return filesToKeep; }
     public Set<FileAttributes> getFileAttributes() { return fileAttributes; }
     public Engine getEngine() { return engine; }
+    public FileStateIndex getFileStateIndex() { return fileStateIndex; }
+    public ObjectStore getObjectStore() { return objectStore; }
+    public int getFilesDownloaded() { return filesDownloaded.get(); }
+
+    /**
+     * Возвращает состояние стадий конвейера {@link #updateFiles(boolean)}: глубину очередей и пропускную способность.
+     *
+     * @return снимок стадий или пустой список, если конвейер не запускался
+     */
+    public List<StageStats> getPipelineStats() {
+        StagedPipeline<FileAttributes> pipeline = this.pipeline;
+        return pipeline != null ? pipeline.getStats() : List.of();
+    }
+
+    /**
+     * Возвращает future загрузки конкретного файла.
+     *
+     * @param attribute файл из текущего списка загрузки
+     * @return future, завершающийся после загрузки файла, или {@code null}, если файл не ставился в очередь
+     */
+    public CompletableFuture<FileAttributes> getDownloadFuture(FileAttributes attribute) {
+        return downloadFutures.get(attribute);
+    }
 
     public void addFileToKeep(String fileName) {
         this.filesToKeep.add(fileName);
@@ -218,8 +629,8 @@ public abstract class AbstractFileLoader {
     protected Void handleFileListRetrievalError(Throwable e) {
         Engine.LOGGER.error("Error retrieving file list: {}", e.getMessage(), e);
         SwingUtilities.invokeLater(() -> loadingManager.setLoadingText(e.getMessage(), "error.file"));
-        // Можно реализовать повторную попытку или иной механизм обработки
-        getFilesToDownload(forceUpdate);
+        // Список запрашивается заново целиком, уже объявленные слушателю файлы пропускаются
+        fetchFileList();
         return null;
     }
 
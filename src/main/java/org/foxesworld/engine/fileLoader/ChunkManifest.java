@@ -0,0 +1,71 @@
+package org.foxesworld.engine.fileLoader;
+
+import java.util.List;
+
+/**
+ * Block-level description of a remote file, returned by the {@code loadChunks} request.
+ * <p>
+ * The file is cut into blocks of {@code blockSize} bytes (the last one may be shorter). Every block
+ * carries an rsync-style weak rolling checksum and a strong MD5 hash. The weak checksum of a block of
+ * {@code L} bytes {@code x[0..L-1]} is {@code a | (b << 16)}, where
+ * {@code a = sum(x[i]) mod 65536} and {@code b = sum((L - i) * x[i]) mod 65536}, with bytes taken as
+ * unsigned values.
+ * </p>
+ */
+@SuppressWarnings("unused")
+public class ChunkManifest {
+    private String filename;
+    private String hash;
+    private long size;
+    private int blockSize;
+    private List<Chunk> chunks;
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Checks that the manifest describes exactly the given manifest entry.
+     *
+     * @param attribute the file list entry the manifest was requested for
+     * @return {@code true} if sizes, hash and block layout agree
+     */
+    public boolean matches(FileAttributes attribute) {
+        if (blockSize <= 0 || chunks == null || hash == null) {
+            return false;
+        }
+        long expectedChunks = (size + blockSize - 1) / blockSize;
+        return size == attribute.getSize()
+                && hash.equalsIgnoreCase(attribute.getHash())
+                && chunks.size() == expectedChunks;
+    }
+
+    public static class Chunk {
+        private long weak;
+        private String strong;
+
+        public long getWeak() {
+            return weak;
+        }
+
+        public String getStrong() {
+            return strong;
+        }
+    }
+}
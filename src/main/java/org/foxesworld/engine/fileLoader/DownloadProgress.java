@@ -0,0 +1,160 @@
+package org.foxesworld.engine.fileLoader;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a download batch, counted off the event dispatch thread and published to the UI at a fixed rate.
+ * <p>
+ * Download threads only add to a {@link LongAdder}, which does not contend when many transfers report at once.
+ * A Swing {@link Timer} samples the counter every {@value #PUBLISH_INTERVAL_MS} ms while the batch is running,
+ * updates the smoothed throughput and notifies the listeners on the EDT, so the UI gets about 30 updates
+ * a second however many chunks arrive.
+ * </p>
+ */
+public class DownloadProgress {
+
+    /**
+     * Receives progress updates on the event dispatch thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onProgress(DownloadProgress progress);
+    }
+
+    public static final int PUBLISH_INTERVAL_MS = 33;
+    // Time constant of the throughput average: older samples fade out over about three seconds
+    private static final double SMOOTHING_SECONDS = 3.0;
+
+    private final LongAdder downloaded = new LongAdder();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Timer timer;
+    private volatile long totalSize;
+    // Touched only on the EDT
+    private long lastDownloaded;
+    private long lastSampleNanos;
+    private volatile long published;
+    private volatile double throughput;
+
+    public DownloadProgress() {
+        this.timer = new Timer(PUBLISH_INTERVAL_MS, e -> publish());
+        this.timer.setCoalesce(true);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts a new batch of {@code totalSize} bytes and begins publishing.
+     */
+    public void reset(long totalSize) {
+        this.totalSize = totalSize;
+        downloaded.reset();
+        throughput = 0;
+        published = 0;
+        SwingUtilities.invokeLater(() -> {
+            lastDownloaded = 0;
+            lastSampleNanos = System.nanoTime();
+            timer.restart();
+        });
+    }
+
+    /**
+     * Grows the batch while it is running, for downloads whose file list is still arriving.
+     */
+    public void addTotal(long bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        synchronized (this) {
+            totalSize += bytes;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (!timer.isRunning()) {
+                timer.start();
+            }
+        });
+    }
+
+    /**
+     * Counts transferred bytes. A negative value takes back bytes of a failed attempt. Safe to call from any thread.
+     */
+    public void add(long bytes) {
+        if (bytes != 0) {
+            downloaded.add(bytes);
+        }
+    }
+
+    /**
+     * Stops publishing after a final update, e.g. when the batch is cancelled.
+     */
+    public void stop() {
+        SwingUtilities.invokeLater(() -> {
+            timer.stop();
+            publish();
+        });
+    }
+
+    public long getDownloaded() {
+        return downloaded.sum();
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Returns the share of the batch already downloaded, from {@code 0} to {@code 100}.
+     */
+    public int getPercent() {
+        long total = totalSize;
+        return total > 0 ? (int) Math.min(100, Math.max(0, published * 100 / total)) : 0;
+    }
+
+    /**
+     * Returns the smoothed download speed in bytes per second.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Returns the estimated seconds left at the current throughput, or {@code -1} if unknown.
+     */
+    public long getEtaSeconds() {
+        double rate = throughput;
+        long left = totalSize - published;
+        if (left <= 0) {
+            return 0;
+        }
+        return rate > 0 ? (long) Math.ceil(left / rate) : -1;
+    }
+
+    private void publish() {
+        long now = System.nanoTime();
+        long done = downloaded.sum();
+        double elapsed = (now - lastSampleNanos) / 1_000_000_000.0;
+        if (elapsed > 0) {
+            double rate = Math.max(0, done - lastDownloaded) / elapsed;
+            // Exponential smoothing with a weight that depends on the real interval, the timer may coalesce ticks
+            double weight = 1 - Math.exp(-elapsed / SMOOTHING_SECONDS);
+            throughput = throughput == 0 ? rate : throughput + weight * (rate - throughput);
+        }
+        lastDownloaded = done;
+        lastSampleNanos = now;
+        published = done;
+        for (Listener listener : listeners) {
+            listener.onProgress(this);
+        }
+        if (totalSize > 0 && done >= totalSize) {
+            timer.stop();
+        }
+    }
+}
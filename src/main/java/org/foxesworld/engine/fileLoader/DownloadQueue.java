@@ -0,0 +1,150 @@
+package org.foxesworld.engine.fileLoader;
+
+import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.EngineData;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded download engine used by {@link AbstractFileLoader}.
+ * <p>
+ * Files are executed on a fixed number of worker threads taken from
+ * {@link EngineData.DownloadManager#getDownloadThreads()}. Pending files wait in a priority
+ * queue that hands out the largest files first, so the long transfers start early and the
+ * tail of the install is made of small files that finish quickly.
+ * </p>
+ * <p>
+ * Every submitted file gets its own {@link CompletableFuture} that completes once the
+ * download action has returned for that file.
+ * </p>
+ */
+public class DownloadQueue {
+
+    /** Worker count used when {@code downloadThreads} is missing or not positive. */
+    public static final int DEFAULT_THREADS = 4;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int threads;
+
+    /**
+     * Creates a queue with the given number of worker threads.
+     *
+     * @param threads number of parallel downloads
+     */
+    public DownloadQueue(int threads) {
+        this.threads = threads > 0 ? threads : DEFAULT_THREADS;
+        this.executor = new ThreadPoolExecutor(
+                this.threads,
+                this.threads,
+                30L, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                new DownloadThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+        Engine.LOGGER.info("Download queue started with {} threads", this.threads);
+    }
+
+    /**
+     * Creates a queue sized from the engine's {@code downloadManager} settings.
+     *
+     * @param engineData engine settings, may be {@code null}
+     * @return a new download queue
+     */
+    public static DownloadQueue fromEngineData(EngineData engineData) {
+        EngineData.DownloadManager downloadManager = engineData != null ? engineData.getDownloadManager() : null;
+        return new DownloadQueue(downloadManager != null ? downloadManager.getDownloadThreads() : DEFAULT_THREADS);
+    }
+
+    /**
+     * Queues a file for download.
+     *
+     * @param attribute the file to download
+     * @param action    the blocking download action, called on a worker thread
+     * @return a future completed with the attribute once {@code action} returns, or exceptionally if it throws
+     */
+    public CompletableFuture<FileAttributes> submit(FileAttributes attribute, Consumer<FileAttributes> action) {
+        DownloadTask task = new DownloadTask(attribute, action, sequence.getAndIncrement());
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(e);
+        }
+        return task.future;
+    }
+
+    /**
+     * Drops all files that have not started yet and interrupts running downloads.
+     */
+    public void cancel() {
+        for (Runnable pending : executor.shutdownNow()) {
+            if (pending instanceof DownloadTask task) {
+                task.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting new files; already queued files are still downloaded.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getPendingCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    private static final class DownloadTask implements Runnable, Comparable<DownloadTask> {
+        private final FileAttributes attribute;
+        private final Consumer<FileAttributes> action;
+        private final long order;
+        private final CompletableFuture<FileAttributes> future = new CompletableFuture<>();
+
+        private DownloadTask(FileAttributes attribute, Consumer<FileAttributes> action, long order) {
+            this.attribute = attribute;
+            this.action = action;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                action.accept(attribute);
+                future.complete(attribute);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(DownloadTask other) {
+            int bySize = Long.compare(other.attribute.getSize(), attribute.getSize());
+            return bySize != 0 ? bySize : Long.compare(order, other.order);
+        }
+    }
+
+    private static final class DownloadThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "download-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package org.foxesworld.engine.fileLoader;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.foxesworld.engine.Engine;
 import org.foxesworld.engine.utils.HTTP.HTTPrequest;
 import org.foxesworld.engine.utils.HTTP.HttpParam;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * FileFetcher is responsible for fetching a list of file attributes from the server
@@ -16,12 +27,18 @@ import java.util.concurrent.CompletableFuture;
  * the modern CompletableFuture-based API for asynchronous operations.
  * </p>
  */
-public class FileFetcher extends HTTPrequest {
+public class FileFetcher extends HTTPrequest implements IFileFetcher {
+
+    // Sent by servers that version the file list with a hash of their own instead of an ETag
+    private static final String MANIFEST_HASH_HEADER = "X-Manifest-Hash";
 
     @HttpParam
     private final String sysRequest = "loadFiles";
     @HttpParam
     private String version, client, platform;
+    private final Gson gson = new Gson();
+    private ManifestCache manifestCache;
+    private volatile ManifestDiff lastDiff;
 
     /**
      * Constructs a new FileFetcher instance.
@@ -46,10 +63,123 @@ public class FileFetcher extends HTTPrequest {
      *         or completes exceptionally if an error occurs.
      */
     public CompletableFuture<FileAttributes[]> fetchDownloadList(String client, String version, int platform) {
+        List<FileAttributes> files = new ArrayList<>();
+        return fetchDownloadList(client, version, platform, files::add)
+                .thenApply(count -> files.toArray(new FileAttributes[0]));
+    }
+
+    /**
+     * Asynchronously fetches the download list, parsing it while it is being received.
+     * <p>
+     * The response is read with a streaming {@link JsonReader}: each array element is converted to
+     * {@code FileAttributes} and passed to {@code consumer} on the request thread right away, so checking
+     * local files can start before the last entry has arrived and the whole list is never held as a String.
+     * </p>
+     * <p>
+     * With a {@link ManifestCache} set, the request carries the validator of the cached list in
+     * {@code If-None-Match}. On {@code 304 Not Modified} the cached entries are replayed to {@code consumer};
+     * otherwise the received list replaces the cached one and {@link #getLastDiff()} describes the changes.
+     * </p>
+     *
+     * @param client   the client identifier
+     * @param version  the version identifier
+     * @param platform the platform identifier as an integer
+     * @param consumer receives every entry of the list, in list order
+     * @return a CompletableFuture that resolves to the number of entries read
+     */
+    @Override
+    public CompletableFuture<Integer> fetchDownloadList(String client, String version, int platform, Consumer<FileAttributes> consumer) {
         this.version = version;
         this.client = client;
         this.platform = String.valueOf(platform);
 
-        return sendAsyncCF(Collections.emptyMap()).thenApply(response -> new Gson().fromJson(response, FileAttributes[].class));
+        ManifestCache cache = this.manifestCache;
+        ManifestCache.Snapshot cached = cache == null ? null : cache.load(client, version, platform);
+        Map<String, String> headers = cached != null && cached.validator() != null
+                ? Map.of("If-None-Match", cached.validator())
+                : Collections.emptyMap();
+
+        return sendAsyncCF(Collections.emptyMap(), headers, response -> {
+            if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                Engine.LOGGER.info("File list is not modified, using cached list of {} files", cached.files().size());
+                cached.files().forEach(consumer);
+                lastDiff = ManifestDiff.unchanged(cached.files());
+                return cached.files().size();
+            }
+            List<FileAttributes> files = new ArrayList<>();
+            try (JsonReader reader = new JsonReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                readFileList(reader, file -> {
+                    files.add(file);
+                    consumer.accept(file);
+                });
+            }
+            if (cache != null) {
+                String validator = response.getHeader("ETag") != null ? response.getHeader("ETag") : response.getHeader(MANIFEST_HASH_HEADER);
+                lastDiff = ManifestDiff.compute(cached == null ? null : cached.files(), files);
+                cache.store(client, version, platform, validator, files);
+                Engine.LOGGER.info("File list changed: {}", lastDiff);
+            }
+            return files.size();
+        });
+    }
+
+    /**
+     * Sets the cache used for conditional file list requests.
+     *
+     * @param manifestCache the cache, or {@code null} to always request the full list
+     */
+    @Override
+    public void setManifestCache(ManifestCache manifestCache) {
+        this.manifestCache = manifestCache;
+    }
+
+    /**
+     * Returns the difference between the cached and the last received file list.
+     *
+     * @return the difference, or {@code null} if no cache is set or no list was received yet
+     */
+    @Override
+    public ManifestDiff getLastDiff() {
+        return lastDiff;
+    }
+
+    private int readFileList(JsonReader reader, Consumer<FileAttributes> consumer) throws IOException {
+        // An empty body means an empty list, as with Gson.fromJson before
+        if (reader.peek() == JsonToken.END_DOCUMENT) {
+            return 0;
+        }
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            FileAttributes attributes = gson.fromJson(reader, FileAttributes.class);
+            if (attributes != null) {
+                consumer.accept(attributes);
+                count++;
+            }
+        }
+        reader.endArray();
+        return count;
+    }
+
+    /**
+     * Asynchronously fetches the chunk manifest of a single file for delta updates.
+     * <p>
+     * Sends the {@code loadChunks} request with the file name. Servers that do not know the request
+     * answer with an empty body, which resolves to {@code null}.
+     * </p>
+     *
+     * @param client   the client identifier
+     * @param version  the version identifier
+     * @param filename the file name as listed in the file list
+     * @return a CompletableFuture that resolves to the chunk manifest or {@code null}
+     */
+    @Override
+    public CompletableFuture<ChunkManifest> fetchChunkManifest(String client, String version, String filename) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("sysRequest", "loadChunks");
+        params.put("client", client);
+        params.put("version", version);
+        params.put("file", filename);
+        return sendAsyncCF(params).thenApply(response -> gson.fromJson(response, ChunkManifest.class));
     }
 }
@@ -4,6 +4,9 @@ import org.foxesworld.engine.Engine;
 import org.foxesworld.engine.gui.ActionHandler;
 import org.foxesworld.engine.gui.loadingManager.LoadingManager;
 import org.foxesworld.engine.utils.Download.DownloadUtils;
+import org.foxesworld.engine.service.CancellationToken;
+import org.foxesworld.engine.service.TaskKind;
+import org.foxesworld.engine.service.TaskPriority;
 
 import javax.swing.*;
 import java.io.File;
@@ -104,17 +107,29 @@ public class FileLoader {
             fileLoaderListener.onFilesLoaded();
             return;
         }
+        // Задача группы fileLoader ждёт свои загрузки, поэтому cancelGroup останавливает ещё не начатые
         this.engine.getExecutorServiceProvider().submitTask(() -> {
+            CancellationToken token = CancellationToken.current();
             fileLoaderListener.onDownloadStart();
             totalSize = this.calculateTotalSize();//fileAttributes.stream().mapToLong(FileAttributes::getSize).sum();
             downloadUtils.setTotalSize(this.totalSize);
 
-            fileAttributes.forEach(file -> CompletableFuture.runAsync(() -> downloadFile(file, totalFiles)));
-        }, "fileLoader");
+            List<CompletableFuture<Void>> downloads = fileAttributes.stream()
+                    .map(file -> CompletableFuture.runAsync(() -> downloadFile(file, totalFiles, token)))
+                    .toList();
+            try {
+                CompletableFuture.allOf(downloads.toArray(new CompletableFuture<?>[0])).get();
+            } catch (InterruptedException e) {
+                downloads.forEach(download -> download.cancel(false));
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Engine.LOGGER.error("Error downloading files: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }, "fileLoader", TaskKind.IO, TaskPriority.BACKGROUND, null);
     }
 
-    private void downloadFile(FileAttributes file, int totalFiles) {
-        if (isCancelled.get()) {
+    private void downloadFile(FileAttributes file, int totalFiles, CancellationToken token) {
+        if (isCancelled.get() || token.isCancelled()) {
             return; // Stop execution if cancellation was called
         }
 
@@ -159,6 +174,11 @@ public class FileLoader {
 
     public void cancel() {
         isCancelled.set(true);
+        this.engine.getExecutorServiceProvider().cancelGroup("fileLoader");
+        DownloadProgress progress = downloadUtils.getProgress();
+        if (progress != null) {
+            progress.stop();
+        }
         fileLoaderListener.onCancel();
     }
     private long calculateTotalSize() {
@@ -0,0 +1,185 @@
+package org.foxesworld.engine.fileLoader;
+
+import org.foxesworld.engine.Engine;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent index of files that were already verified under a root directory.
+ * <p>
+ * Entries are keyed by the path relative to the root and store size, modification time,
+ * the file system file key (inode on Unix) and the last hash the file was verified against.
+ * A file whose size, modification time and file key did not change since then does not need
+ * to be hashed again. The index is stored in a compact binary file inside the root directory.
+ * </p>
+ */
+public class FileStateIndex {
+
+    /** Name of the index file inside the root directory. */
+    public static final String FILE_NAME = ".filestate.idx";
+
+    private static final int MAGIC = 0x46584958; // "FXIX"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path root;
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean loaded = new AtomicBoolean(false);
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public FileStateIndex(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.indexFile = this.root.resolve(FILE_NAME);
+    }
+
+    /**
+     * Returns the verified hash of the file if it is unchanged since it was recorded.
+     *
+     * @param file       the local file
+     * @param attributes current attributes of the file
+     * @return the last verified hash, or {@code null} if the file is unknown or was modified
+     */
+    public String getVerifiedHash(Path file, BasicFileAttributes attributes) {
+        ensureLoaded();
+        Entry entry = entries.get(key(file));
+        if (entry == null) {
+            return null;
+        }
+        boolean unchanged = entry.size == attributes.size()
+                && entry.modified == attributes.lastModifiedTime().toMillis()
+                && entry.fileKey.equals(fileKey(attributes));
+        return unchanged ? entry.hash : null;
+    }
+
+    /**
+     * Records a file as verified against {@code hash}.
+     *
+     * @param file the local file
+     * @param hash the hash the file was verified against
+     */
+    public void record(Path file, String hash) {
+        try {
+            record(file, Files.readAttributes(file, BasicFileAttributes.class), hash);
+        } catch (IOException e) {
+            remove(file);
+        }
+    }
+
+    public void record(Path file, BasicFileAttributes attributes, String hash) {
+        ensureLoaded();
+        Entry entry = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), fileKey(attributes), hash);
+        if (!entry.equals(entries.put(key(file), entry))) {
+            dirty.set(true);
+        }
+    }
+
+    public void remove(Path file) {
+        ensureLoaded();
+        if (entries.remove(key(file)) != null) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Writes the index to disk if anything changed since it was loaded or last saved.
+     */
+    public synchronized void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            Files.createDirectories(root);
+            Path tmp = indexFile.resolveSibling(FILE_NAME + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                Map<String, Entry> snapshot = Map.copyOf(entries);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.modified);
+                    out.writeUTF(entry.fileKey);
+                    out.writeUTF(entry.hash);
+                }
+            }
+            try {
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Engine.LOGGER.debug("File state index saved: {} entries", entries.size());
+        } catch (IOException e) {
+            dirty.set(true);
+            Engine.LOGGER.warn("Unable to save file state index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    public int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    private void ensureLoaded() {
+        if (loaded.get()) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded.get()) {
+                return;
+            }
+            load();
+            loaded.set(true);
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Engine.LOGGER.warn("Unknown file state index format, rebuilding {}", indexFile);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                entries.put(path, new Entry(in.readLong(), in.readLong(), in.readUTF(), in.readUTF()));
+            }
+            Engine.LOGGER.debug("File state index loaded: {} entries", count);
+        } catch (IOException e) {
+            entries.clear();
+            Engine.LOGGER.warn("Corrupted file state index {}, rebuilding: {}", indexFile, e.getMessage());
+        }
+    }
+
+    private String key(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        Path relative = absolute.startsWith(root) ? root.relativize(absolute) : absolute;
+        return relative.toString().replace('\\', '/');
+    }
+
+    private static String fileKey(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey != null ? fileKey.toString() : "";
+    }
+
+    private record Entry(long size, long modified, String fileKey, String hash) {
+        private Entry {
+            Objects.requireNonNull(fileKey);
+            Objects.requireNonNull(hash);
+        }
+    }
+}
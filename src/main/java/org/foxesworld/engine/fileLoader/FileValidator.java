@@ -1,8 +1,10 @@
 package org.foxesworld.engine.fileLoader;
 
+import org.foxesworld.engine.metrics.FileValidationEvent;
+import org.foxesworld.engine.metrics.MetricsRegistry;
+import org.foxesworld.engine.utils.HashService;
+
 import java.io.File;
-import java.io.FileInputStream;
-import java.security.MessageDigest;
 
 /**
  * Реализация валидатора файлов, отвечающая за проверку корректности локального файла.
@@ -20,32 +22,44 @@ public class FileValidator implements IFileValidator {
      */
     @Override
     public boolean isInvalidFile(File file, String expectedHash, long expectedSize) {
-        if (!file.exists() || file.length() != expectedSize) {
-            return true;
-        }
-
+        FileValidationEvent event = new FileValidationEvent();
+        long started = System.nanoTime();
+        event.begin();
+        boolean hashed = false;
+        boolean invalid = true;
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] dataBytes = new byte[1024];
-            int bytesRead;
-
-            try (FileInputStream fis = new FileInputStream(file)) {
-                while ((bytesRead = fis.read(dataBytes)) != -1) {
-                    md.update(dataBytes, 0, bytesRead);
-                }
+            if (!file.exists() || file.length() != expectedSize) {
+                return true;
             }
-
-            byte[] digestBytes = md.digest();
-            StringBuilder hexString = new StringBuilder();
-
-            for (byte digestByte : digestBytes) {
-                hexString.append(String.format("%02x", digestByte));
-            }
-
-            return !hexString.toString().equals(expectedHash);
+            hashed = true;
+            String actualHash = HashService.getInstance().hash(file.toPath(), HashService.Algorithm.MD5);
+            invalid = !actualHash.equalsIgnoreCase(expectedHash);
+            return invalid;
         } catch (Exception e) {
             e.printStackTrace();
             return true;
+        } finally {
+            record(event, started, file, expectedSize, hashed, invalid);
+        }
+    }
+
+    // Только хэширование заметно по времени, проверка размера идёт в отдельный счётчик
+    private static void record(FileValidationEvent event, long started, File file, long expectedSize,
+                               boolean hashed, boolean invalid) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        if (hashed) {
+            metrics.recordSince("file.validation.hash.nanos", started);
+        } else {
+            metrics.increment("file.validation.sizeMismatch");
+        }
+        metrics.increment(invalid ? "file.validation.invalid" : "file.validation.valid");
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.expectedSize = expectedSize;
+            event.hashed = hashed;
+            event.invalid = invalid;
+            event.commit();
         }
     }
 }
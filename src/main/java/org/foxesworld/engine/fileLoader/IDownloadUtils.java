@@ -5,5 +5,32 @@ package org.foxesworld.engine.fileLoader;
  */
 public interface IDownloadUtils {
     void setTotalSize(long totalSize);
+
+    /**
+     * Передаёт индекс проверенных файлов, чтобы загрузчик мог отметить файлы, проверенные при скачивании.
+     *
+     * @param fileStateIndex индекс состояния файлов клиента
+     */
+    default void setFileStateIndex(FileStateIndex fileStateIndex) {
+    }
+
+    /**
+     * Передаёт источник поблочных манифестов для дельта-обновлений крупных файлов.
+     *
+     * @param chunkSource функция, возвращающая манифест блоков по имени файла из списка загрузки
+     */
+    default void setChunkSource(java.util.function.Function<String, java.util.concurrent.CompletableFuture<ChunkManifest>> chunkSource) {
+    }
+
+    /**
+     * Возвращает прогресс загрузки, на который может подписаться интерфейс.
+     * Реализация считает байты в {@link DownloadProgress#add(long)} и начинает пакет в {@link #setTotalSize(long)}.
+     *
+     * @return прогресс загрузки или {@code null}, если реализация его не сообщает
+     */
+    default DownloadProgress getProgress() {
+        return null;
+    }
+
     // Дополнительные утилиты можно добавить здесь.
 }
@@ -13,4 +13,62 @@ public interface IFileFetcher {
      * @return a {@link java.util.concurrent.CompletableFuture} containing an array of {@code FileAttributes}
      */
     java.util.concurrent.CompletableFuture<FileAttributes[]> fetchDownloadList(String client, String version, int platformCode);
+
+    /**
+     * Fetches the list of file attributes and hands every entry to {@code consumer} as soon as it is parsed.
+     * <p>
+     * The default implementation waits for the whole list and then iterates over it.
+     * </p>
+     *
+     * @param client       the client name
+     * @param version      the client version
+     * @param platformCode platform code
+     * @param consumer     receives every entry of the list, in list order
+     * @return a {@link java.util.concurrent.CompletableFuture} with the number of entries read
+     */
+    default java.util.concurrent.CompletableFuture<Integer> fetchDownloadList(String client, String version, int platformCode,
+                                                                               java.util.function.Consumer<FileAttributes> consumer) {
+        return fetchDownloadList(client, version, platformCode).thenApply(files -> {
+            for (FileAttributes file : files) {
+                consumer.accept(file);
+            }
+            return files.length;
+        });
+    }
+
+    /**
+     * Sets the cache used to make file list requests conditional.
+     * <p>
+     * The default implementation ignores the cache.
+     * </p>
+     *
+     * @param manifestCache the cache, or {@code null} to disable it
+     */
+    default void setManifestCache(ManifestCache manifestCache) {
+    }
+
+    /**
+     * Returns the difference between the cached and the last received file list.
+     *
+     * @return the difference, or {@code null} if it is unknown
+     */
+    default ManifestDiff getLastDiff() {
+        return null;
+    }
+
+    /**
+     * Fetches the block-level description of a single file for delta updates.
+     * <p>
+     * The default implementation reports that delta updates are not supported.
+     * </p>
+     *
+     * @param client   the client name
+     * @param version  the client version
+     * @param filename the file name as listed in the file list
+     * @return a {@link java.util.concurrent.CompletableFuture} with the chunk manifest, or {@code null} if the
+     *         server does not provide one
+     */
+    default java.util.concurrent.CompletableFuture<ChunkManifest> fetchChunkManifest(String client, String version, String filename) {
+        return java.util.concurrent.CompletableFuture.completedFuture(null);
+    }
 }
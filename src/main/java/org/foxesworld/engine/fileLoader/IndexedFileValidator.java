@@ -0,0 +1,62 @@
+package org.foxesworld.engine.fileLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Валидатор-обёртка, который пропускает хэширование файлов, не изменившихся с последней проверки.
+ * <p>
+ * Решение о корректности изменённых или неизвестных файлов по-прежнему принимает исходный
+ * {@link IFileValidator}, поэтому пользовательские валидаторы продолжают работать без изменений.
+ * Результаты успешных проверок сохраняются в {@link FileStateIndex}.
+ * </p>
+ */
+public class IndexedFileValidator implements IFileValidator {
+
+    private final IFileValidator delegate;
+    private final FileStateIndex index;
+
+    public IndexedFileValidator(IFileValidator delegate, FileStateIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public boolean isInvalidFile(File localFile, String expectedHash, long expectedSize) {
+        Path path = localFile.toPath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return true;
+        }
+        if (!attributes.isRegularFile() || attributes.size() != expectedSize) {
+            return true;
+        }
+
+        String verifiedHash = index.getVerifiedHash(path, attributes);
+        if (verifiedHash != null && expectedHash != null) {
+            // Файл не менялся с момента проверки: его хэш известен без чтения содержимого
+            return !verifiedHash.equalsIgnoreCase(expectedHash);
+        }
+
+        boolean invalid = delegate.isInvalidFile(localFile, expectedHash, expectedSize);
+        if (invalid || expectedHash == null) {
+            index.remove(path);
+        } else {
+            index.record(path, attributes, expectedHash);
+        }
+        return invalid;
+    }
+
+    public IFileValidator getDelegate() {
+        return delegate;
+    }
+
+    public FileStateIndex getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,86 @@
+package org.foxesworld.engine.fileLoader;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.foxesworld.engine.Engine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * On-disk copy of the last file list received for a client.
+ * <p>
+ * Every list is stored together with its validator (the {@code ETag} or the manifest hash sent by the
+ * server), so the next {@code loadFiles} request can be made conditional. When the server answers
+ * {@code 304 Not Modified} the cached list is used as is; otherwise the new list is compared with the
+ * cached one by {@link ManifestDiff}.
+ * </p>
+ */
+public class ManifestCache {
+
+    /** Name of the cache directory inside the home directory. */
+    public static final String DIR_NAME = ".manifests";
+
+    private final Path root;
+    private final Gson gson = new Gson();
+
+    public ManifestCache(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Loads the cached list of a client.
+     *
+     * @return the cached snapshot, or {@code null} if there is none or it cannot be read
+     */
+    public Snapshot load(String client, String version, int platform) {
+        Path file = cacheFile(client, version, platform);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Snapshot snapshot = gson.fromJson(reader, Snapshot.class);
+            return snapshot != null && snapshot.files() != null ? snapshot : null;
+        } catch (IOException | JsonParseException e) {
+            Engine.LOGGER.warn("Discarding unreadable manifest cache {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the cached list of a client.
+     *
+     * @param validator the {@code ETag} or manifest hash of the list, may be {@code null}
+     * @param files     the received list
+     */
+    public void store(String client, String version, int platform, String validator, List<FileAttributes> files) {
+        Path file = cacheFile(client, version, platform);
+        try {
+            Files.createDirectories(root);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                gson.toJson(new Snapshot(validator, files), writer);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Engine.LOGGER.warn("Unable to save manifest cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path cacheFile(String client, String version, int platform) {
+        String name = (client + "_" + version + "_" + platform).replaceAll("[^A-Za-z0-9._-]", "_");
+        return root.resolve(name + ".json");
+    }
+
+    /**
+     * A cached file list with the validator it was received with.
+     */
+    public record Snapshot(String validator, List<FileAttributes> files) {
+    }
+}
@@ -0,0 +1,80 @@
+package org.foxesworld.engine.fileLoader;
+
+import java.util.*;
+
+/**
+ * Difference between the cached file list and the one just received.
+ * <p>
+ * Entries are matched by file name. An entry is changed when its hash or size differs.
+ * </p>
+ */
+public class ManifestDiff {
+
+    private final List<FileAttributes> added = new ArrayList<>();
+    private final List<FileAttributes> removed = new ArrayList<>();
+    private final List<FileAttributes> changed = new ArrayList<>();
+    private final int unchanged;
+
+    private ManifestDiff(List<FileAttributes> previous, List<FileAttributes> current) {
+        Map<String, FileAttributes> old = new HashMap<>();
+        for (FileAttributes file : previous) {
+            old.put(file.getFilename(), file);
+        }
+        int same = 0;
+        for (FileAttributes file : current) {
+            FileAttributes before = old.remove(file.getFilename());
+            if (before == null) {
+                added.add(file);
+            } else if (before.getSize() != file.getSize() || !Objects.equals(before.getHash(), file.getHash())) {
+                changed.add(file);
+            } else {
+                same++;
+            }
+        }
+        removed.addAll(old.values());
+        this.unchanged = same;
+    }
+
+    /**
+     * Compares two lists.
+     *
+     * @param previous the cached list, {@code null} if there was none
+     * @param current  the received list
+     * @return the difference; with no cached list every entry is added
+     */
+    public static ManifestDiff compute(List<FileAttributes> previous, List<FileAttributes> current) {
+        return new ManifestDiff(previous == null ? Collections.emptyList() : previous, current);
+    }
+
+    /**
+     * Returns the difference of a list that was not modified on the server.
+     */
+    public static ManifestDiff unchanged(List<FileAttributes> files) {
+        return new ManifestDiff(files, files);
+    }
+
+    public List<FileAttributes> getAdded() {
+        return added;
+    }
+
+    public List<FileAttributes> getRemoved() {
+        return removed;
+    }
+
+    public List<FileAttributes> getChanged() {
+        return changed;
+    }
+
+    public int getUnchangedCount() {
+        return unchanged;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "added=" + added.size() + ", removed=" + removed.size() + ", changed=" + changed.size() + ", unchanged=" + unchanged;
+    }
+}
@@ -0,0 +1,152 @@
+package org.foxesworld.engine.fileLoader;
+
+import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.utils.HashService;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+
+/**
+ * Content-addressed store of files shared by all clients under the same home directory.
+ * <p>
+ * Objects are kept under {@code <root>/ab/abcdef...}, named by their MD5 hash. Client files are
+ * populated from the store with hard links, so identical libraries, assets and mods of different
+ * servers occupy disk space once. On file systems without hard links the object is copied.
+ * </p>
+ * <p>
+ * A hard-linked client file shares its content with the object, so an object is re-verified
+ * whenever its size, modification time or file key differs from the state recorded in the
+ * {@link FileStateIndex}. A corrupted object is dropped instead of being linked again.
+ * </p>
+ * <p>
+ * Hard links also mean that every client linked to an object shares the same file: a change written
+ * into such a file in place (e.g. a config edited by a mod or by the player) shows up in all other clients
+ * linked to it, and in the store. Files that are expected to be edited per client should be kept out
+ * of the store, for example with the loader's files-to-keep list, or replaced by writing a new file
+ * and moving it over the old one, which breaks the link.
+ * </p>
+ */
+public class ObjectStore {
+
+    /** Name of the store directory inside the home directory. */
+    public static final String DIR_NAME = ".objects";
+
+    private final Path root;
+    private final FileStateIndex index;
+
+    public ObjectStore(Path root, FileStateIndex index) {
+        this.root = root.toAbsolutePath().normalize();
+        this.index = index;
+    }
+
+    /**
+     * Places the object with the given hash at {@code target}, as a hard link where the file system supports it.
+     * The target then shares its content with the object and with every other client linked to it.
+     *
+     * @param hash   MD5 hash of the wanted content
+     * @param size   expected size in bytes
+     * @param target the client file to create or replace
+     * @return {@code true} if the file was populated from the store
+     */
+    public boolean materialize(String hash, long size, Path target) {
+        if (hash == null || hash.isEmpty()) {
+            return false;
+        }
+        Path object = objectPath(hash);
+        if (!isValidObject(object, hash, size)) {
+            return false;
+        }
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path tmp = target.resolveSibling(target.getFileName() + ".link");
+            Files.deleteIfExists(tmp);
+            try {
+                Files.createLink(tmp, object);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(object, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            index.record(target, hash);
+            return true;
+        } catch (IOException e) {
+            Engine.LOGGER.debug("Unable to populate {} from store: {}", target, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds a verified client file to the store, if an object with its hash is not stored yet.
+     *
+     * @param file a file whose content is known to match {@code hash}
+     * @param hash MD5 hash of the file
+     */
+    public void ingest(Path file, String hash) {
+        if (hash == null || hash.isEmpty()) {
+            return;
+        }
+        Path object = objectPath(hash);
+        if (Files.isRegularFile(object)) {
+            return;
+        }
+        try {
+            Files.createDirectories(object.getParent());
+            // The same content may be ingested from several check threads at once
+            Path tmp = object.resolveSibling(object.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+            Files.deleteIfExists(tmp);
+            try {
+                Files.createLink(tmp, file);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, object, StandardCopyOption.REPLACE_EXISTING);
+            index.record(object, hash);
+        } catch (IOException e) {
+            Engine.LOGGER.debug("Unable to add {} to store: {}", file, e.getMessage());
+        }
+    }
+
+    public Path objectPath(String hash) {
+        String name = hash.toLowerCase(Locale.ROOT);
+        return root.resolve(name.substring(0, Math.min(2, name.length()))).resolve(name);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    private boolean isValidObject(Path object, String hash, long size) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(object, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return false;
+        }
+        if (attributes.size() != size) {
+            drop(object);
+            return false;
+        }
+        if (hash.equalsIgnoreCase(index.getVerifiedHash(object, attributes))) {
+            return true;
+        }
+        try {
+            if (HashService.getInstance().hash(object, HashService.Algorithm.MD5).equalsIgnoreCase(hash)) {
+                index.record(object, attributes, hash);
+                return true;
+            }
+        } catch (IOException ignored) {
+        }
+        Engine.LOGGER.warn("Dropping corrupted store object {}", object);
+        drop(object);
+        return false;
+    }
+
+    private void drop(Path object) {
+        try {
+            Files.deleteIfExists(object);
+        } catch (IOException ignored) {
+        }
+        index.remove(object);
+    }
+}
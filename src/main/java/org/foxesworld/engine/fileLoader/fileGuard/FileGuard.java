@@ -1,25 +1,31 @@
 package org.foxesworld.engine.fileLoader.fileGuard;
 
 import org.apache.logging.log4j.Logger;
+import org.foxesworld.engine.fileLoader.FileStateIndex;
+import org.foxesworld.engine.fileLoader.ManifestCache;
+import org.foxesworld.engine.fileLoader.ObjectStore;
 import org.foxesworld.engine.game.GameLauncher;
+import org.foxesworld.engine.utils.Download.DownloadUtils;
+import org.foxesworld.engine.service.TaskKind;
+import org.foxesworld.engine.service.TaskPriority;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 
 @SuppressWarnings("unused")
 public class FileGuard {
     private FileGuardListener fileGuardListener;
     private final List<Path> checkList;
     private final Set<Path> ignoreList;
+    private final Path gameDir;
     private final String[] basicIgnoreDirs = {"saves", "resourcepacks", "shaderpacks", "screenshots", "logs", "config"};
     private final GameLauncher gameLauncher;
     private final Logger logger;
-    private final AtomicInteger totalFiles = new AtomicInteger(0);
     private final AtomicInteger checkedFiles = new AtomicInteger(0);
     private final AtomicInteger filesDeleted = new AtomicInteger(0);
 
@@ -27,7 +33,8 @@ public class FileGuard {
         this.gameLauncher = gameLauncher;
         this.logger = this.gameLauncher.getLogger();
         this.checkList = new CopyOnWriteArrayList<>(convertToPaths(checkList));
-        this.ignoreList = new HashSet<>();
+        this.ignoreList = ConcurrentHashMap.newKeySet();
+        this.gameDir = gameLauncher.getPathBuilders().buildGameDir().toAbsolutePath().normalize();
         buildBasicIgnoreList();
     }
 
@@ -39,26 +46,40 @@ public class FileGuard {
         return result;
     }
 
+    /**
+     * Удаляет файлы, отсутствующие в списке клиента, из всех проверяемых каталогов.
+     * <p>
+     * Каждый каталог обходится один раз через {@link Files#walkFileTree}: игнорируемые поддеревья
+     * пропускаются целиком, а опустевшие каталоги удаляются при выходе из них. Подкаталоги верхнего
+     * уровня обходятся параллельно.
+     * </p>
+     *
+     * @param filesToKeep пути файлов относительно каталога игры
+     */
     public void scanAndDeleteFilesInSubdirectories(Set<String> filesToKeep) {
         this.gameLauncher.getEngine().getExecutorServiceProvider().submitTask(() -> {
-            totalFiles.set(countTotalFiles());
             resetCounters();
 
             logger.info("Ignoring the following directories:");
             ignoreList.forEach(dir -> logger.info("  - {}", dir));
 
-            for (Path dir : checkList) {
-                logger.debug("Checking Directory: {}", dir);
-                if (fileGuardListener != null) {
-                    fileGuardListener.onDirCheck(dir.toString());
+            Set<String> keep = normalizeKeepList(filesToKeep);
+            ExecutorService workers = createWorkers();
+            try {
+                for (Path dir : checkList) {
+                    logger.debug("Checking Directory: {}", dir);
+                    if (fileGuardListener != null) {
+                        fileGuardListener.onDirCheck(dir.toString());
+                    }
+                    scanDirectory(dir, keep, workers);
                 }
-                scanAndDeleteFilesRecursively(dir, convertToPaths(new ArrayList<>(filesToKeep)));
+            } finally {
+                workers.shutdown();
             }
-
             if (fileGuardListener != null) {
                 fileGuardListener.onFilesChecked(filesDeleted.get());
             }
-        }, "fileGuard");
+        }, "fileGuard", TaskKind.IO, TaskPriority.BACKGROUND, null);
     }
 
     private void resetCounters() {
@@ -66,79 +87,134 @@ public class FileGuard {
         filesDeleted.set(0);
     }
 
-    private int countTotalFiles() {
-        return checkList.stream()
-                .filter(Files::exists)
-                .mapToInt(this::countFilesInDirectory)
-                .sum();
+    private Set<String> normalizeKeepList(Set<String> filesToKeep) {
+        Set<String> keep = new HashSet<>(filesToKeep.size() * 2);
+        for (String file : filesToKeep) {
+            keep.add(Paths.get(file).normalize().toString().replace("\\", "/"));
+        }
+        return keep;
     }
 
-    private int countFilesInDirectory(Path directory) {
-        try {
-            return (int) Files.walk(directory)
-                    .filter(Files::isRegularFile)
-                    .count();
-        } catch (Exception e) {
-            logger.error("Error counting files in directory: {}", directory, e);
-            return 0;
-        }
+    private ExecutorService createWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "fileGuard-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public void removeEmptyFolders(Path dir) {
-        if (dir == null || !Files.exists(dir)) {
+    // Файлы корня проверяются сразу, каждый подкаталог верхнего уровня обходит отдельный воркер
+    private void scanDirectory(Path directory, Set<String> filesToKeep, ExecutorService workers) {
+        if (!Files.isDirectory(directory)) {
             return;
         }
-
-        try {
-            try (Stream<Path> subPaths = Files.list(dir)) {
-                subPaths.filter(Files::isDirectory).forEach(this::removeEmptyFolders);
-            }
-
-            boolean isEmpty;
-            try (Stream<Path> dirContents = Files.list(dir)) {
-                isEmpty = dirContents.findAny().isEmpty();
+        for (Path parent = directory.toAbsolutePath().normalize(); parent != null; parent = parent.getParent()) {
+            if (ignoreList.contains(parent)) {
+                logger.info("Skipping directory (ignored): {}", directory);
+                return;
             }
-
-            if (isEmpty) {
-                Files.delete(dir);
-                logger.debug("Removed empty directory: {}", dir);
+        }
+        List<Future<?>> subtrees = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path path : entries) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    subtrees.add(workers.submit(() -> walk(path, filesToKeep, true)));
+                } else if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                    checkAndDeleteFile(path, filesToKeep);
+                }
             }
-        } catch (DirectoryNotEmptyException e) {
-            logger.debug("Directory is not empty (concurrent modification?): {}", dir);
         } catch (IOException e) {
-            logger.error("Error while processing directory: {}", dir, e);
+            logger.error("Error scanning directory: {}", directory, e);
+        }
+        for (Future<?> subtree : subtrees) {
+            try {
+                subtree.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Error scanning directory: {}", directory, e.getCause());
+            }
         }
     }
 
-    private void scanAndDeleteFilesRecursively(Path directory, List<Path> filesToKeep) {
+    /**
+     * Удаляет пустые каталоги внутри {@code dir}, включая сам {@code dir}, за один обход.
+     *
+     * @param dir корень обхода
+     */
+    public void removeEmptyFolders(Path dir) {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        walk(dir, null, true);
+    }
+
+    /**
+     * Обходит дерево каталогов один раз.
+     *
+     * @param root        корень обхода
+     * @param filesToKeep файлы клиента; {@code null} — только удаление пустых каталогов
+     * @param removeRoot  удалять ли сам корень, если он опустел
+     */
+    private void walk(Path root, Set<String> filesToKeep, boolean removeRoot) {
         try {
-            if (isInIgnoreList(directory)) {
-                logger.info("Skipping directory (ignored): {}", directory);
-                return;
-            }
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (isInIgnoreList(dir)) {
+                        logger.info("Skipping directory (ignored): {}", dir);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    logger.debug("Scanning directory: {}", dir);
+                    return FileVisitResult.CONTINUE;
+                }
 
-            logger.debug("Scanning directory: {}", directory);
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (filesToKeep != null && attrs.isRegularFile()) {
+                        checkAndDeleteFile(file, filesToKeep);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
 
-            Files.list(directory).forEach(path -> {
-                if (Files.isRegularFile(path)) {
-                    checkAndDeleteFile(path, filesToKeep);
-                } else if (Files.isDirectory(path)) {
-                    scanAndDeleteFilesRecursively(path, filesToKeep);
-                    removeEmptyFolders(path);
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.error("Error scanning: {}", file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    if (removeRoot || !dir.equals(root)) {
+                        deleteIfEmpty(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
                 }
             });
-        } catch (Exception e) {
-            logger.error("Error scanning directory: {}", directory, e);
+        } catch (IOException e) {
+            logger.error("Error scanning directory: {}", root, e);
         }
     }
 
+    private void deleteIfEmpty(Path dir) {
+        try {
+            Files.delete(dir);
+            logger.debug("Removed empty directory: {}", dir);
+        } catch (DirectoryNotEmptyException ignored) {
+            // Каталог содержит сохранённые файлы
+        } catch (IOException e) {
+            logger.error("Error while processing directory: {}", dir, e);
+        }
+    }
 
-    private void checkAndDeleteFile(Path file, List<Path> filesToKeep) {
+    private void checkAndDeleteFile(Path file, Set<String> filesToKeep) {
         if (fileGuardListener != null) {
             fileGuardListener.onFileCheck(file.toFile());
         }
         String relativePath = getRelativePath(file);
-        if (!filesToKeep.contains(Paths.get(relativePath)) && !isUserConfig(file) && !isInIgnoreList(file)) {
+        if (!filesToKeep.contains(relativePath) && !isUserConfig(file) && !isEngineStateFile(file) && !isInIgnoreList(file)) {
             try {
                 Files.delete(file);
                 logger.debug("Deleted unlisted file: {}", relativePath);
@@ -168,15 +244,13 @@ public class FileGuard {
         }
     }
     private String getRelativePath(Path filePath) {
-        Path relativePath = gameLauncher.getPathBuilders().buildGameDir().relativize(filePath);
+        Path relativePath = gameDir.relativize(filePath.toAbsolutePath().normalize());
         return relativePath.toString().replace("\\", "/");
     }
 
+    // Содержимое игнорируемых каталогов не обходится, поэтому достаточно точного совпадения пути
     private boolean isInIgnoreList(Path filePath) {
-        Path absolutePath = filePath.normalize().toAbsolutePath();
-        return ignoreList.stream()
-                .map(Path::toAbsolutePath)
-                .anyMatch(absolutePath::startsWith);
+        return ignoreList.contains(filePath.toAbsolutePath().normalize());
     }
 
 
@@ -222,6 +296,26 @@ public class FileGuard {
         return file.getFileName().toString().endsWith(".txt");
     }
 
+    // Индекс проверенных файлов, общее хранилище и недокачанные .part файлы нужны загрузчику между запусками
+    private boolean isEngineStateFile(Path file) {
+        String name = file.getFileName().toString();
+        for (Path part : file) {
+            if (part.toString().equals(ObjectStore.DIR_NAME) || part.toString().equals(ManifestCache.DIR_NAME)) {
+                return true;
+            }
+        }
+        return name.equals(FileStateIndex.FILE_NAME)
+                || name.endsWith(DownloadUtils.PART_SUFFIX)
+                || name.endsWith(DownloadUtils.PART_SUFFIX + ".validator");
+    }
+
+    /**
+     * Устанавливает слушателя проверки.
+     * <p>
+     * {@link FileGuardListener#onFileCheck(File)} вызывается из нескольких воркеров одновременно,
+     * {@code onDirCheck} и {@code onFilesChecked} — из задачи проверки.
+     * </p>
+     */
     public void setFileGuardListener(FileGuardListener fileGuardListener) {
         this.fileGuardListener = fileGuardListener;
     }
@@ -5,5 +5,11 @@ import java.io.File;
 public interface FileGuardListener {
     void  onFilesChecked(int filesDeleted);
     void onDirCheck(String dir);
+
+    /**
+     * Вызывается для каждого проверяемого файла. Подкаталоги обходятся параллельно, поэтому метод
+     * вызывается из нескольких потоков одновременно и должен быть потокобезопасным; обновлять
+     * Swing-компоненты нужно через {@code SwingUtilities.invokeLater}.
+     */
     void onFileCheck(File file);
 }
@@ -0,0 +1,19 @@
+package org.foxesworld.engine.fileLoader.pipeline;
+
+/**
+ * Work done by a pipeline stage for one item.
+ *
+ * @param <T> the item type
+ */
+@FunctionalInterface
+public interface StageAction<T> {
+
+    /**
+     * Processes an item.
+     *
+     * @param item the item
+     * @return {@code true} to pass the item to the next stage, {@code false} if it needs no further work
+     * @throws Exception if the item failed; the pipeline records the error and continues with other items
+     */
+    boolean process(T item) throws Exception;
+}
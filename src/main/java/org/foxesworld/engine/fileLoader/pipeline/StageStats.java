@@ -0,0 +1,26 @@
+package org.foxesworld.engine.fileLoader.pipeline;
+
+/**
+ * Snapshot of a pipeline stage.
+ *
+ * @param name           stage name
+ * @param threads        worker threads of the stage
+ * @param queued         items waiting in the stage's input queue
+ * @param capacity       capacity of the input queue
+ * @param active         items being processed right now
+ * @param processed      items finished by the stage, including failed ones
+ * @param failed         items that failed in the stage
+ * @param itemsPerSecond items finished per second since the stage got its first item
+ * @param bytesPerSecond weight of the finished items per second, e.g. file bytes
+ * @param busyRatio      share of the worker time spent processing, from {@code 0} to {@code 1}
+ */
+public record StageStats(String name, int threads, int queued, int capacity, int active, long processed, long failed,
+                         double itemsPerSecond, double bytesPerSecond, double busyRatio) {
+
+    @Override
+    public String toString() {
+        return String.format("%s[queue %d/%d, active %d/%d, done %d, failed %d, %.1f items/s, %.1f KB/s, busy %.0f%%]",
+                name, queued, capacity, active, threads, processed, failed, itemsPerSecond, bytesPerSecond / 1024,
+                busyRatio * 100);
+    }
+}
@@ -0,0 +1,269 @@
+package org.foxesworld.engine.fileLoader.pipeline;
+
+import org.foxesworld.engine.Engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
+
+/**
+ * Chain of stages that process items concurrently, each stage on its own pool of worker threads.
+ * <p>
+ * Stages are connected by bounded queues. A worker that finishes an item puts it into the queue of the
+ * next stage and blocks while that queue is full, so a slow stage holds back the stages before it
+ * instead of letting items pile up in memory. Every stage works as soon as it has items, so e.g. local
+ * checks and verification overlap the network transfers.
+ * </p>
+ * <p>
+ * A failing item is recorded and dropped, the other items go on. {@link #getCompletion()} completes when
+ * the input was closed with {@link #close()} and every item left the pipeline, exceptionally with the
+ * first error if any item failed.
+ * </p>
+ *
+ * @param <T> the item type
+ */
+public class StagedPipeline<T> {
+
+    private final String name;
+    private final ToLongFunction<T> weigher;
+    private final List<Stage> stages = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile boolean started;
+
+    /**
+     * @param name    pipeline name, used for thread names and logs
+     * @param weigher weight of an item for the byte throughput, e.g. its size
+     */
+    public StagedPipeline(String name, ToLongFunction<T> weigher) {
+        this.name = name;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Appends a stage. Stages must be added before {@link #start()}.
+     *
+     * @param stageName name of the stage
+     * @param threads   worker threads of the stage
+     * @param capacity  capacity of the stage's input queue
+     * @param action    the work done for each item
+     * @return this pipeline
+     */
+    public StagedPipeline<T> addStage(String stageName, int threads, int capacity, StageAction<T> action) {
+        if (started) {
+            throw new IllegalStateException("Pipeline " + name + " is already running");
+        }
+        stages.add(new Stage(stageName, Math.max(1, threads), Math.max(1, capacity), action));
+        return this;
+    }
+
+    /**
+     * Starts the workers of all stages.
+     *
+     * @return this pipeline
+     */
+    public StagedPipeline<T> start() {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline " + name + " has no stages");
+        }
+        started = true;
+        for (int i = 0; i < stages.size(); i++) {
+            stages.get(i).start(i + 1 < stages.size() ? stages.get(i + 1) : null);
+        }
+        return this;
+    }
+
+    /**
+     * Feeds an item into the first stage, blocking while its queue is full.
+     *
+     * @param item the item
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void submit(T item) throws InterruptedException {
+        if (closed.get()) {
+            throw new IllegalStateException("Pipeline " + name + " is closed");
+        }
+        if (cancelled.get()) {
+            return;
+        }
+        inFlight.incrementAndGet();
+        stages.get(0).queue.put(item);
+    }
+
+    /**
+     * Marks the end of the input. The pipeline completes once the submitted items are done.
+     */
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            finishIfDrained();
+        }
+    }
+
+    /**
+     * Stops all stages. Queued items are dropped and running ones are interrupted.
+     */
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            closed.set(true);
+            stopStages();
+            completion.cancel(false);
+        }
+    }
+
+    /**
+     * Ends the pipeline with an error that is not tied to an item, e.g. a failed input source.
+     */
+    public void fail(Throwable error) {
+        firstError.compareAndSet(null, error);
+        cancelled.set(true);
+        closed.set(true);
+        stopStages();
+        completion.completeExceptionally(error);
+    }
+
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Returns a snapshot of every stage in pipeline order.
+     */
+    public List<StageStats> getStats() {
+        List<StageStats> stats = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            stats.add(stage.stats());
+        }
+        return stats;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Called whenever an item leaves the pipeline
+    private void itemDone() {
+        if (inFlight.decrementAndGet() == 0) {
+            finishIfDrained();
+        }
+    }
+
+    private void finishIfDrained() {
+        if (!closed.get() || inFlight.get() != 0 || cancelled.get() || completion.isDone()) {
+            return;
+        }
+        stopStages();
+        Engine.LOGGER.debug("Pipeline {} finished: {}", name, getStats());
+        Throwable error = firstError.get();
+        if (error != null) {
+            completion.completeExceptionally(error);
+        } else {
+            completion.complete(null);
+        }
+    }
+
+    private void stopStages() {
+        for (Stage stage : stages) {
+            stage.stop();
+        }
+    }
+
+    private final class Stage {
+        private final String stageName;
+        private final int threads;
+        private final int capacity;
+        private final StageAction<T> action;
+        private final BlockingQueue<T> queue;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private volatile long firstItemNanos;
+        private ExecutorService workers;
+
+        private Stage(String stageName, int threads, int capacity, StageAction<T> action) {
+            this.stageName = stageName;
+            this.threads = threads;
+            this.capacity = capacity;
+            this.action = action;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void start(Stage next) {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + stageName + "-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < threads; i++) {
+                workers.execute(() -> work(next));
+            }
+        }
+
+        private void work(Stage next) {
+            try {
+                while (!cancelled.get()) {
+                    T item = queue.take();
+                    if (firstItemNanos == 0) {
+                        firstItemNanos = System.nanoTime();
+                    }
+                    if (process(item) && next != null && !cancelled.get()) {
+                        // Blocks while the next stage is full
+                        next.queue.put(item);
+                    } else {
+                        itemDone();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private boolean process(T item) {
+            active.incrementAndGet();
+            long started = System.nanoTime();
+            try {
+                return action.process(item);
+            } catch (Throwable e) {
+                // An escaping error would end the worker and leave the item in flight forever
+                failed.incrementAndGet();
+                if (!cancelled.get()) {
+                    Engine.LOGGER.error("Stage {} of {} failed for {}: {}", stageName, name, item, e.getMessage());
+                    firstError.compareAndSet(null, e);
+                }
+                return false;
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - started);
+                bytes.addAndGet(weigher.applyAsLong(item));
+                processed.incrementAndGet();
+                active.decrementAndGet();
+            }
+        }
+
+        private void stop() {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+            queue.clear();
+        }
+
+        private StageStats stats() {
+            long first = firstItemNanos;
+            double seconds = first == 0 ? 0 : (System.nanoTime() - first) / 1_000_000_000.0;
+            long done = processed.get();
+            return new StageStats(stageName, threads, queue.size(), capacity, active.get(), done, failed.get(),
+                    seconds > 0 ? done / seconds : 0,
+                    seconds > 0 ? bytes.get() / seconds : 0,
+                    seconds > 0 ? Math.min(1, busyNanos.get() / 1_000_000_000.0 / seconds / threads) : 0);
+        }
+    }
+}
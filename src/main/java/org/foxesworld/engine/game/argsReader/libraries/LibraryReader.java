@@ -6,7 +6,7 @@ import org.foxesworld.engine.Engine;
 import org.foxesworld.engine.game.GameLauncher;
 import org.foxesworld.engine.game.argsReader.ArgsReader;
 import org.foxesworld.engine.game.argsReader.RuleChecker;
-import org.foxesworld.engine.utils.HashUtils;
+import org.foxesworld.engine.utils.HashService;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -19,6 +19,8 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class LibraryReader {
     private final boolean checkHash;
@@ -46,6 +48,8 @@ public class LibraryReader {
             Engine.LOGGER.debug("Total libraries to process: {}", librariesArray.size());
 
             if (libraries.size() != librariesArray.size()) {
+                List<Library> candidates = new ArrayList<>();
+                List<Path> candidatePaths = new ArrayList<>();
                 for (JsonElement libraryElement : librariesArray) {
                     JsonObject libraryObject = libraryElement.getAsJsonObject();
                     if (isLibraryAllowed(libraryObject)) {
@@ -55,24 +59,37 @@ public class LibraryReader {
 
                         File libraryFile = new File(libraryFullPath);
                         if (libraryFile.exists()) {
-                            boolean isValidHash = library.getArtifact().getSha1().equals(HashUtils.calculateSHA1(libraryFullPath));
-
-                            if (this.checkHash && isValidHash) {
-                                size += library.getArtifact().getSize() / (1024 * 1024);
-                                Engine.LOGGER.debug("Adding {} for {} ENV", library.getName(), currentOS);
-                                libraries.add(library);
-                            } else if (!this.checkHash) {
-                                size += library.getArtifact().getSize() / (1024 * 1024);
-                                Engine.LOGGER.debug("Adding {} for {} ENV (hash skipped) Damn you legacy lover", library.getName(), currentOS);
-                                libraries.add(library);
-                            } else {
-                                Engine.LOGGER.warn("Invalid hash for {} library skipped", libraryFullPath);
-                            }
+                            candidates.add(library);
+                            candidatePaths.add(libraryFile.toPath());
                         } else {
                             Engine.LOGGER.warn("Library file not found {}", libraryFullPath);
                         }
                     }
                 }
+
+                // Hashes of all libraries are computed in parallel, results are consumed in manifest order
+                List<CompletableFuture<String>> hashes = new ArrayList<>(candidates.size());
+                for (Path candidatePath : candidatePaths) {
+                    hashes.add(this.checkHash
+                            ? HashService.getInstance().hashAsync(candidatePath, HashService.Algorithm.SHA1)
+                            : CompletableFuture.completedFuture(null));
+                }
+
+                for (int i = 0; i < candidates.size(); i++) {
+                    Library library = candidates.get(i);
+                    libraryFullPath = candidatePaths.get(i).toString();
+                    if (!this.checkHash) {
+                        size += library.getArtifact().getSize() / (1024 * 1024);
+                        Engine.LOGGER.debug("Adding {} for {} ENV (hash skipped) Damn you legacy lover", library.getName(), currentOS);
+                        libraries.add(library);
+                    } else if (library.getArtifact().getSha1().equals(awaitHash(hashes.get(i), libraryFullPath))) {
+                        size += library.getArtifact().getSize() / (1024 * 1024);
+                        Engine.LOGGER.debug("Adding {} for {} ENV", library.getName(), currentOS);
+                        libraries.add(library);
+                    } else {
+                        Engine.LOGGER.warn("Invalid hash for {} library skipped", libraryFullPath);
+                    }
+                }
             }
             Engine.LOGGER.debug("{} lib num {} {}mb", currentOS, libraries.size(), size);
 
@@ -84,6 +101,16 @@ public class LibraryReader {
 
 
 
+    private String awaitHash(CompletableFuture<String> hash, String libraryFullPath) {
+        try {
+            return hash.join();
+        } catch (CompletionException e) {
+            Engine.LOGGER.error("Error reading file: {}", e.getCause().getMessage());
+            new File(libraryFullPath).delete();
+            return "";
+        }
+    }
+
     private boolean isLibraryAllowed(JsonObject libraryObject) {
         return ruleChecker.checkRules(libraryObject) && ruleChecker.checkPlatform(libraryObject, "natives") && ruleChecker.checkPlatform(libraryObject, "classifies");
     }
@@ -3,6 +3,8 @@ package org.foxesworld.engine.gui;
 import org.foxesworld.engine.Engine;
 import org.foxesworld.engine.utils.animation.AnimationManager;
 import org.foxesworld.engine.utils.animation.AnimationStats;
+import org.foxesworld.engine.service.TaskKind;
+import org.foxesworld.engine.service.TaskPriority;
 
 import javax.swing.*;
 import java.awt.*;
@@ -76,7 +78,7 @@ public abstract class FloatingWindow extends JWindow implements AnimationStats {
     public void animateLoadingWindow(boolean isEntry) {
         this.engine.getExecutorServiceProvider().submitTask(() -> {
             animationManager.animate(isEntry);
-        }, "animation-"+isEntry);
+        }, "animation-"+isEntry, TaskKind.CPU, TaskPriority.UI_CRITICAL, null);
     }
 
     public void toggleVisibility() {
@@ -87,7 +89,7 @@ public abstract class FloatingWindow extends JWindow implements AnimationStats {
                 setSize(FRAME_WIDTH, FRAME_HEIGHT);
                 animateLoadingWindow(true);
             }
-        }, "loaderAnimation");
+        }, "loaderAnimation", TaskKind.CPU, TaskPriority.UI_CRITICAL, null);
     }
 
     public Engine getEngine() {
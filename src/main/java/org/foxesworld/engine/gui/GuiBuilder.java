@@ -8,6 +8,8 @@ import org.foxesworld.engine.gui.components.ComponentAttributes;
 import org.foxesworld.engine.gui.components.ComponentFactory;
 import org.foxesworld.engine.gui.components.frame.FrameConstructor;
 import org.foxesworld.engine.gui.components.frame.OptionGroups;
+import org.foxesworld.engine.metrics.GuiBuildEvent;
+import org.foxesworld.engine.metrics.MetricsRegistry;
 import org.foxesworld.notification.Notification;
 
 import javax.swing.*;
@@ -87,8 +89,7 @@ public class GuiBuilder {
             Engine.getLOGGER().error("Failed to load frame attributes from: {}", framePath);
             return;
         }
-        buildPanels(frameAttributes.getGroups(), parent);
-        notifyPanelsBuilt();  // Called once after finishing building all panels
+        buildAllPanels(framePath, frameAttributes, parent);
     }
 
     /**
@@ -114,10 +115,7 @@ public class GuiBuilder {
                         Engine.getLOGGER().error("Frame attributes are null for path: {}", framePath);
                         return;
                     }
-                    SwingUtilities.invokeLater(() -> {
-                        buildPanels(attributes.getGroups(), parent);
-                        notifyPanelsBuilt(); // Called once after finishing building all panels
-                    });
+                    SwingUtilities.invokeLater(() -> buildAllPanels(framePath, attributes, parent));
                 })
                 .exceptionally(ex -> {
                     Engine.getLOGGER().error("Error building GUI asynchronously", ex);
@@ -202,7 +200,51 @@ public class GuiBuilder {
             Engine.getLOGGER().error("No loader found for file type: {}", fileType);
             return null;
         }
-        return loader.getAttributes(framePath);
+        GuiBuildEvent event = new GuiBuildEvent();
+        long started = System.nanoTime();
+        event.begin();
+        try {
+            return loader.getAttributes(framePath);
+        } finally {
+            recordPhase(event, started, GuiBuildEvent.PHASE_ATTRIBUTES, framePath);
+        }
+    }
+
+    /**
+     * Builds the panels of a loaded frame and notifies the listeners.
+     *
+     * @param framePath       path of the frame description, for metrics.
+     * @param frameAttributes loaded frame attributes.
+     * @param parent          parent panel into which components are added.
+     */
+    private void buildAllPanels(String framePath, Attributes frameAttributes, JPanel parent) {
+        GuiBuildEvent event = new GuiBuildEvent();
+        long started = System.nanoTime();
+        event.begin();
+        try {
+            buildPanels(frameAttributes.getGroups(), parent);
+        } finally {
+            recordPhase(event, started, GuiBuildEvent.PHASE_PANELS, framePath);
+        }
+        GuiBuildEvent listenersEvent = new GuiBuildEvent();
+        long listenersStarted = System.nanoTime();
+        listenersEvent.begin();
+        try {
+            notifyPanelsBuilt();  // Called once after finishing building all panels
+        } finally {
+            recordPhase(listenersEvent, listenersStarted, GuiBuildEvent.PHASE_LISTENERS, framePath);
+        }
+    }
+
+    private void recordPhase(GuiBuildEvent event, long started, String phase, String framePath) {
+        MetricsRegistry.getInstance().recordSince("gui.build." + phase + ".nanos", started);
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.frame = framePath;
+            event.panels = panelsMap.size();
+            event.commit();
+        }
     }
 
     /**
@@ -2,6 +2,8 @@ package org.foxesworld.engine.gui.components.dropBox;
 
 import org.foxesworld.engine.Engine;
 import org.foxesworld.engine.gui.components.ComponentFactory;
+import org.foxesworld.engine.service.TaskKind;
+import org.foxesworld.engine.service.TaskPriority;
 
 import javax.swing.*;
 import java.awt.*;
@@ -87,7 +89,7 @@ public class DropBox extends JComponent implements MouseListener, MouseMotionLis
                     dropBoxListener.onScrollBoxCreated(this);
                 }
                 loaded = true;
-            }, "dropBoxPaint");
+            }, "dropBoxPaint", TaskKind.CPU, TaskPriority.UI_CRITICAL, null);
         }
         g.setColor(hexToColor(componentFactory.getStyle().getColor()));
     }
@@ -242,7 +244,7 @@ public class DropBox extends JComponent implements MouseListener, MouseMotionLis
                 hover = newHover;
                 // Trigger hover event processing if state is OPENED
                 if (state == State.OPENED && dropBoxListener != null) {
-                    this.engine.getExecutorServiceProvider().submitTask(() -> dropBoxListener.onServerHover(this, newHover), "dropBoxHover");
+                    this.engine.getExecutorServiceProvider().submitTask(() -> dropBoxListener.onServerHover(this, newHover), "dropBoxHover", TaskKind.IO, TaskPriority.UI_CRITICAL, null);
                 }
                 repaint();
             }
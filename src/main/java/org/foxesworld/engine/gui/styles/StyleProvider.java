@@ -6,6 +6,8 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.metrics.MetricsRegistry;
+import org.foxesworld.engine.metrics.ResourceLoadEvent;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -89,11 +91,24 @@ public class StyleProvider {
     private void loadStyles(String[] styles) {
         if (styles == null) return;
         for (String style : styles) {
+            ResourceLoadEvent event = new ResourceLoadEvent();
+            long started = System.nanoTime();
+            event.begin();
             try {
                 loadStyle(style);
             } catch (StyleLoadingException e) {
+                event.failure = e.getMessage();
                 Engine.getLOGGER().error("Failed to load style: " + style, e);
             }
+            MetricsRegistry.getInstance().recordSince("resource.style.nanos", started);
+            event.end();
+            if (event.shouldCommit()) {
+                Map<String, StyleAttributes> loaded = elementStyles.get(style);
+                event.kind = ResourceLoadEvent.KIND_STYLE;
+                event.name = style;
+                event.entries = loaded != null ? loaded.size() : 0;
+                event.commit();
+            }
         }
     }
 
@@ -4,6 +4,8 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.metrics.MetricsRegistry;
+import org.foxesworld.engine.metrics.ResourceLoadEvent;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -28,6 +30,9 @@ public class LanguageProvider {
     }
 
     private void loadLocalizationData(Engine engine, String langFilePath) {
+        ResourceLoadEvent event = new ResourceLoadEvent();
+        long started = System.nanoTime();
+        event.begin();
         try {
             Gson gson = new Gson();
             InputStreamReader reader = new InputStreamReader(Objects.requireNonNull(engine.getClass().getClassLoader().getResourceAsStream(langFilePath)), StandardCharsets.UTF_8);
@@ -64,7 +69,17 @@ public class LanguageProvider {
             }
             bufferedReader.close();
         } catch (IOException e) {
+            event.failure = e.getMessage();
             e.printStackTrace();
+        } finally {
+            MetricsRegistry.getInstance().recordSince("resource.locale.nanos", started);
+            event.end();
+            if (event.shouldCommit()) {
+                event.kind = ResourceLoadEvent.KIND_LOCALE;
+                event.name = langFilePath;
+                event.entries = localizationData.values().stream().mapToInt(Map::size).sum();
+                event.commit();
+            }
         }
     }
 
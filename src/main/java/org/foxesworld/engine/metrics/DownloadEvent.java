@@ -0,0 +1,37 @@
+package org.foxesworld.engine.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A file download, including retries and the switch to other mirrors.
+ */
+@Name("org.foxesworld.engine.Download")
+@Label("Download")
+@Category({"FoxesEngine", "Files"})
+@StackTrace(false)
+public class DownloadEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Mirror")
+    public String mirror;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Transferred")
+    @DataAmount
+    public long transferred;
+
+    @Label("Attempts")
+    public int attempts;
+
+    @Label("Split")
+    @Description("Whether the file was fetched from two mirrors at once")
+    public boolean split;
+
+    @Label("Failure")
+    public String failure;
+}
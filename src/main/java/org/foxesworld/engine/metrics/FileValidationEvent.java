@@ -0,0 +1,27 @@
+package org.foxesworld.engine.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A check of a local file against its manifest entry.
+ */
+@Name("org.foxesworld.engine.FileValidation")
+@Label("File Validation")
+@Category({"FoxesEngine", "Files"})
+@StackTrace(false)
+public class FileValidationEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Expected Size")
+    @DataAmount
+    public long expectedSize;
+
+    @Label("Hashed")
+    @Description("Whether the file content was hashed, not only its size compared")
+    public boolean hashed;
+
+    @Label("Invalid")
+    public boolean invalid;
+}
@@ -0,0 +1,26 @@
+package org.foxesworld.engine.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A phase of building the launcher GUI from a frame description.
+ */
+@Name("org.foxesworld.engine.GuiBuild")
+@Label("GUI Build")
+@Category({"FoxesEngine", "GUI"})
+@StackTrace(false)
+public class GuiBuildEvent extends Event {
+
+    public static final String PHASE_ATTRIBUTES = "attributes";
+    public static final String PHASE_PANELS = "panels";
+    public static final String PHASE_LISTENERS = "listeners";
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Frame")
+    public String frame;
+
+    @Label("Panels")
+    public int panels;
+}
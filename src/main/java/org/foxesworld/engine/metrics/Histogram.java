@@ -0,0 +1,95 @@
+package org.foxesworld.engine.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values in power-of-two buckets.
+ * <p>
+ * Recording is one {@link LongAdder} increment per bucket and never blocks, so it can sit on hot paths.
+ * Percentiles are reported as the upper bound of their bucket, i.e. they are at most twice the real value.
+ * </p>
+ */
+public class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a value. Negative values are counted as {@code 0}.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        // Bucket i holds values up to 2^i - 1
+        buckets[BUCKETS - Long.numberOfLeadingZeros(v)].increment();
+        count.increment();
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile, or {@code 0} if nothing was recorded.
+     *
+     * @param percentile from {@code 0} to {@code 100}
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(max.get(), i == 0 ? 0 : (1L << i) - 1);
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the summary that is written to the metrics file.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long n = getCount();
+        snapshot.put("count", n);
+        snapshot.put("sum", getSum());
+        snapshot.put("mean", n > 0 ? getSum() / (double) n : 0);
+        snapshot.put("p50", getPercentile(50));
+        snapshot.put("p90", getPercentile(90));
+        snapshot.put("p99", getPercentile(99));
+        snapshot.put("max", getMax());
+        return snapshot;
+    }
+}
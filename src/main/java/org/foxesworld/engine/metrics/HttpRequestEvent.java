@@ -0,0 +1,28 @@
+package org.foxesworld.engine.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A request sent by an {@link org.foxesworld.engine.utils.HTTP.HTTPrequest}, from sending it to reading the response.
+ */
+@Name("org.foxesworld.engine.HttpRequest")
+@Label("HTTP Request")
+@Category({"FoxesEngine", "HTTP"})
+@StackTrace(false)
+public class HttpRequestEvent extends Event {
+
+    @Label("Request Class")
+    public String requestClass;
+
+    @Label("Method")
+    public String method;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Status Code")
+    public int statusCode;
+
+    @Label("Failure")
+    public String failure;
+}
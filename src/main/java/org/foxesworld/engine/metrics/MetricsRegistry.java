@@ -0,0 +1,113 @@
+package org.foxesworld.engine.metrics;
+
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters and histograms of the engine subsystems.
+ * <p>
+ * The registry complements the JFR events in this package: events show single slow operations in a
+ * recording, the registry keeps cheap totals for a whole session. Durations are recorded in nanoseconds
+ * under names ending in {@code .nanos}. With {@link #dumpOnExit(Path)} the registry is written as JSON when
+ * the JVM exits; the engine does that when the {@value #METRICS_FILE_PROPERTY} system property is set.
+ * </p>
+ */
+public final class MetricsRegistry {
+
+    public static final String METRICS_FILE_PROPERTY = "launcher.metricsFile";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final long startedMillis = System.currentTimeMillis();
+    private volatile Path dumpFile;
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    public void record(String name, long value) {
+        histogram(name).record(value);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, taken from {@link System#nanoTime()}.
+     */
+    public void recordSince(String name, long startNanos) {
+        histogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the current values, counters and histograms sorted by name.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        Map<String, Object> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("startedAt", startedMillis);
+        snapshot.put("dumpedAt", System.currentTimeMillis());
+        snapshot.put("counters", counterValues);
+        snapshot.put("histograms", histogramValues);
+        return snapshot;
+    }
+
+    /**
+     * Writes the current values to {@code file} as JSON.
+     */
+    public void dump(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(snapshot());
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the registry to {@code file} when the JVM exits. Calling it again only changes the file.
+     */
+    public synchronized void dumpOnExit(Path file) {
+        boolean registered = dumpFile != null;
+        dumpFile = file;
+        if (registered) {
+            return;
+        }
+        Thread hook = new Thread(() -> {
+            try {
+                dump(dumpFile);
+            } catch (IOException e) {
+                // The logger may already be shut down at this point
+                System.err.println("Failed to write metrics to " + dumpFile + ": " + e.getMessage());
+            }
+        }, "metrics-dump");
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+}
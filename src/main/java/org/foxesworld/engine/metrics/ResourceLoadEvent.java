@@ -0,0 +1,28 @@
+package org.foxesworld.engine.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Loading of a style or locale resource.
+ */
+@Name("org.foxesworld.engine.ResourceLoad")
+@Label("Resource Load")
+@Category({"FoxesEngine", "Resources"})
+@StackTrace(false)
+public class ResourceLoadEvent extends Event {
+
+    public static final String KIND_STYLE = "style";
+    public static final String KIND_LOCALE = "locale";
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Name")
+    public String name;
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Failure")
+    public String failure;
+}
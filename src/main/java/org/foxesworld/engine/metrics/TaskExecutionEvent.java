@@ -0,0 +1,29 @@
+package org.foxesworld.engine.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The run of a task submitted to the {@link org.foxesworld.engine.service.ExecutorServiceProvider}.
+ */
+@Name("org.foxesworld.engine.TaskExecution")
+@Label("Task Execution")
+@Category({"FoxesEngine", "Tasks"})
+@StackTrace(false)
+public class TaskExecutionEvent extends Event {
+
+    @Label("Task")
+    public String taskName;
+
+    @Label("Group")
+    public String group;
+
+    @Label("Priority")
+    public String priority;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueWait;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,69 @@
+package org.foxesworld.engine.service;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cancellation flag of a task submitted to {@link ExecutorServiceProvider}.
+ * <p>
+ * Cancelling a task sets its token and interrupts its thread. Code that does not block can check
+ * {@link #isCancelled()} or call {@link #throwIfCancelled()} between steps; the token of the task
+ * running on the current thread is available from {@link #current()}. Jobs that fork subtasks should
+ * pass the token to them explicitly, since a stolen subtask runs on another thread.
+ * </p>
+ */
+public final class CancellationToken {
+
+    /** A token that is never cancelled, returned by {@link #current()} outside of tracked tasks. */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+
+    CancellationToken() {
+    }
+
+    /**
+     * Returns the token of the task running on the current thread, or {@link #NONE}.
+     */
+    public static CancellationToken current() {
+        CancellationToken token = CURRENT.get();
+        return token != null ? token : NONE;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the task was cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Task was cancelled");
+        }
+    }
+
+    void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Makes this token the current one of the calling thread and returns the previous one.
+     */
+    CancellationToken bind() {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    static void restore(CancellationToken previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -9,33 +9,55 @@ import java.awt.event.ActionListener;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+/**
+ * Учёт фоновых задач и окно менеджера задач.
+ * <p>
+ * Потоки задач только обновляют {@link TaskProgress} активных задач и пишут завершённые задачи в
+ * кольцевой буфер {@link TaskMetrics}: ожидание в очереди, время выполнения, процессорное время,
+ * выделенную память и исход. Swing при этом не трогается. Окно менеджера задач опрашивает эти данные
+ * одним таймером, пока оно открыто.
+ * </p>
+ */
 public class ExecutorProgress {
-    private static final ConcurrentHashMap<String, TaskProgress> progressMap = new ConcurrentHashMap<>();
+    private static final long UPDATE_INTERVAL = 250;
+    // Сколько последних завершённых задач показывать в таблице
+    private static final int RECENT_ROWS = 50;
+
+    private final ConcurrentHashMap<String, TaskProgress> progressMap = new ConcurrentHashMap<>();
+    private final TaskMetrics metrics = new TaskMetrics();
     private JFrame statusFrame;
-    private final DefaultTableModel tableModel = new DefaultTableModel(new Object[]{"Task ID", "Task Name", "Progress", "Memory Usage", "Status"}, 0);
+    private final DefaultTableModel tableModel = new DefaultTableModel(new Object[]{"Task ID", "Task Name", "Status", "Progress", "Wait", "Run", "CPU", "Allocated"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
     private final JTable taskTable = new JTable(tableModel);
     private final JLabel totalTasksLabel = new JLabel();
     private final JLabel totalMemoryLabel = new JLabel();
     private final JLabel systemMemoryLabel = new JLabel();
     private JProgressBar memoryProgressBar; // Прогресс-бар для загрузки памяти
-    private static final long UPDATE_INTERVAL = 100;
-    private static boolean isInitialized = false;
+    private Timer refreshTimer;
+    private Consumer<String> terminateHandler;
 
     // Constructor
     public ExecutorProgress() {
     }
 
     public void showTaskMgr() {
-        if (!isInitialized) {
-            initializeFrame();
-            isInitialized = true;
-        }
-        startUpdating();
+        SwingUtilities.invokeLater(() -> {
+            if (statusFrame == null) {
+                initializeFrame();
+            }
+            startUpdating();
+        });
     }
 
     // Метод для генерации уникального идентификатора задачи
@@ -43,11 +65,48 @@ public class ExecutorProgress {
         return UUID.randomUUID().toString();
     }
 
-    // Метод для добавления новой задачи
+    // Метод для добавления новой задачи: фиксирует момент постановки в очередь
     public void addTask(String taskId, String taskName) {
         progressMap.put(taskId, new TaskProgress(taskName));
-        tableModel.addRow(new Object[]{taskId, taskName, 0, "0 bytes", "Not Started"});
-        updateStatistics();
+    }
+
+    /**
+     * Отмечает начало выполнения задачи. Вызывается потоком, который будет её выполнять.
+     *
+     * @param taskId идентификатор задачи
+     */
+    public void startTask(String taskId) {
+        TaskProgress taskProgress = progressMap.get(taskId);
+        if (taskProgress != null) {
+            taskProgress.start();
+        }
+    }
+
+    /**
+     * Записывает измерения завершённой задачи. Процессорное время и память учитываются, только если
+     * метод вызван тем же потоком, что и {@link #startTask(String)}.
+     *
+     * @param taskId  идентификатор задачи
+     * @param outcome исход задачи
+     */
+    public void finishTask(String taskId, TaskMetrics.Outcome outcome) {
+        TaskProgress taskProgress = progressMap.remove(taskId);
+        if (taskProgress == null) {
+            return;
+        }
+        taskProgress.complete();
+        long now = System.nanoTime();
+        long started = taskProgress.getStartedNanos();
+        // Потоковые счётчики имеют смысл только в потоке, выполнявшем задачу
+        boolean sameThread = taskProgress.getRunner() == Thread.currentThread();
+        long cpu = sameThread ? TaskMetrics.currentThreadCpuNanos() : -1;
+        long allocated = sameThread ? TaskMetrics.currentThreadAllocatedBytes() : -1;
+        metrics.record(new TaskMetrics.TaskRecord(taskId, taskProgress.getTaskName(),
+                started != 0 ? started - taskProgress.getSubmittedNanos() : now - taskProgress.getSubmittedNanos(),
+                started != 0 ? now - started : 0,
+                started != 0 && cpu >= 0 && taskProgress.cpuAtStart() >= 0 ? cpu - taskProgress.cpuAtStart() : -1,
+                started != 0 && allocated >= 0 && taskProgress.allocatedAtStart() >= 0 ? allocated - taskProgress.allocatedAtStart() : -1,
+                outcome, System.currentTimeMillis()));
     }
 
     // Метод для обновления прогресса задачи
@@ -55,7 +114,6 @@ public class ExecutorProgress {
         TaskProgress taskProgress = progressMap.get(taskId);
         if (taskProgress != null) {
             taskProgress.setProgress(progress);
-            updateTaskInTable(taskId);
         }
     }
 
@@ -64,83 +122,130 @@ public class ExecutorProgress {
         TaskProgress taskProgress = progressMap.get(taskId);
         if (taskProgress != null) {
             taskProgress.setMemoryUsage(memoryUsage);
-            updateTaskInTable(taskId);
         }
     }
 
-    // Метод для удаления задачи
+    // Метод для удаления задачи: задача, не дошедшая до finishTask, считается отменённой
     public void removeTask(String taskId) {
-        Timer removalTimer = new Timer();
-        removalTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    TaskProgress taskProgress = progressMap.get(taskId);
-                    if (taskProgress != null) {
-                        taskProgress.complete();
-                        progressMap.remove(taskId);
-                        for (int i = 0; i < tableModel.getRowCount(); i++) {
-                            if (tableModel.getValueAt(i, 0).equals(taskId)) {
-                                tableModel.removeRow(i);
-                                break;
-                            }
-                        }
-                        updateStatistics();
-                    }
-                });
-            }
-        }, 500);
-        updateStatistics();
+        if (progressMap.containsKey(taskId)) {
+            finishTask(taskId, TaskMetrics.Outcome.CANCELLED);
+        }
     }
 
+    /**
+     * Задаёт обработчик кнопки «Terminate Task», получающий идентификатор выбранной задачи.
+     *
+     * @param terminateHandler обработчик, например отмена задачи в {@link ExecutorServiceProvider}
+     */
+    public void setTerminateHandler(Consumer<String> terminateHandler) {
+        this.terminateHandler = terminateHandler;
+    }
 
-    // Обновляем прогресс-бар
+    public TaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getActiveTaskCount() {
+        return progressMap.size();
+    }
+
+    // Обновляем статистику и таблицу; выполняется только на EDT по таймеру
     private void updateStatistics() {
-        SwingUtilities.invokeLater(() -> {
-            int activeTasks = progressMap.size();
-            long totalMemoryUsage = progressMap.values().stream().mapToLong(TaskProgress::getMemoryUsage).sum();
-            totalTasksLabel.setText("Active Tasks: " + activeTasks);
-            totalMemoryLabel.setText("Total Memory Usage: " + formatMemory(totalMemoryUsage));
-            systemMemoryLabel.setText("System Memory: " + getMemoryStats());
-
-            // Обновление прогресс-бара
-            MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
-            MemoryUsage heapMemoryUsage = memoryMXBean.getHeapMemoryUsage();
-            long maxMemory = heapMemoryUsage.getMax();
-            long usedMemory = heapMemoryUsage.getUsed();
-
-            int memoryPercentage = (int) ((usedMemory * 100) / maxMemory);
-            if(memoryProgressBar != null) {
-                memoryProgressBar.setValue(memoryPercentage);
-                memoryProgressBar.setString(memoryPercentage + "% Used");
-            }
-        });
+        int activeTasks = progressMap.size();
+        long totalMemoryUsage = progressMap.values().stream().mapToLong(TaskProgress::getMemoryUsage).sum();
+        totalTasksLabel.setText("Active Tasks: " + activeTasks + " | Completed: " + metrics.count(TaskMetrics.Outcome.SUCCESS)
+                + " | Failed: " + metrics.count(TaskMetrics.Outcome.FAILED)
+                + " | Cancelled: " + metrics.count(TaskMetrics.Outcome.CANCELLED));
+        totalMemoryLabel.setText("Total Memory Usage: " + formatMemory(totalMemoryUsage));
+        systemMemoryLabel.setText("System Memory: " + getMemoryStats());
+
+        // Обновление прогресс-бара
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heapMemoryUsage = memoryMXBean.getHeapMemoryUsage();
+        long maxMemory = heapMemoryUsage.getMax();
+        long usedMemory = heapMemoryUsage.getUsed();
+
+        int memoryPercentage = (int) ((usedMemory * 100) / maxMemory);
+        if(memoryProgressBar != null) {
+            memoryProgressBar.setValue(memoryPercentage);
+            memoryProgressBar.setString(memoryPercentage + "% Used");
+        }
+        updateTable();
     }
 
-    // Метод для запуска периодического обновления статистики
+    // Метод для запуска периодического обновления статистики: один таймер на окно
     private void startUpdating() {
-        Timer updateTimer = new Timer();
-        updateTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                updateStatistics();
+        if (refreshTimer == null) {
+            refreshTimer = new Timer((int) UPDATE_INTERVAL, e -> {
+                if (statusFrame != null && statusFrame.isShowing()) {
+                    updateStatistics();
+                }
+            });
+        }
+        updateStatistics();
+        refreshTimer.start();
+    }
+
+    /**
+     * Обновляет таблицу из снимка активных задач и последних завершённых.
+     * <p>
+     * Строки не пересоздаются: меняются только изменившиеся ячейки, лишние строки удаляются с конца.
+     * Выделенная задача остаётся выделенной, даже если её строка сдвинулась.
+     * </p>
+     */
+    private void updateTable() {
+        long now = System.nanoTime();
+        List<Object[]> rows = new ArrayList<>(progressMap.size() + RECENT_ROWS);
+        progressMap.forEach((taskId, taskProgress) -> {
+            boolean started = taskProgress.isStarted();
+            rows.add(new Object[]{taskId, taskProgress.getTaskName(),
+                    started ? "Running" : "Queued",
+                    taskProgress.getProgress(),
+                    formatNanos((started ? taskProgress.getStartedNanos() : now) - taskProgress.getSubmittedNanos()),
+                    started ? formatNanos(now - taskProgress.getStartedNanos()) : "",
+                    "", ""});
+        });
+        for (TaskMetrics.TaskRecord record : metrics.latest(RECENT_ROWS)) {
+            rows.add(new Object[]{record.taskId(), record.taskName(), getTaskStatus(record.outcome()), 100,
+                    formatNanos(record.queueWaitNanos()), formatNanos(record.runNanos()), formatNanos(record.cpuNanos()),
+                    record.allocatedBytes() >= 0 ? formatMemory(record.allocatedBytes()) : "n/a"});
+        }
+
+        int selectedRow = taskTable.getSelectedRow();
+        Object selectedTaskId = selectedRow != -1 ? tableModel.getValueAt(selectedRow, 0) : null;
+        for (int row = 0; row < rows.size(); row++) {
+            Object[] values = rows.get(row);
+            if (row >= tableModel.getRowCount()) {
+                tableModel.addRow(values);
+                continue;
             }
-        }, 0, UPDATE_INTERVAL);
-    }
-
-    // Метод для обновления данных конкретной задачи в таблице
-    private void updateTaskInTable(String taskId) {
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            if (tableModel.getValueAt(i, 0).equals(taskId)) {
-                TaskProgress taskProgress = progressMap.get(taskId);
-                if (taskProgress != null) {
-                    tableModel.setValueAt(taskProgress.getProgress(), i, 2);
-                    tableModel.setValueAt(formatMemory(taskProgress.getMemoryUsage()), i, 3);
-                    tableModel.setValueAt(getTaskStatus(taskProgress), i, 4);
+            for (int column = 0; column < values.length; column++) {
+                if (!Objects.equals(tableModel.getValueAt(row, column), values[column])) {
+                    tableModel.setValueAt(values[column], row, column);
                 }
-                break;
             }
         }
+        if (tableModel.getRowCount() > rows.size()) {
+            tableModel.setRowCount(rows.size());
+        }
+        if (selectedTaskId != null) {
+            restoreSelection(selectedTaskId);
+        }
+    }
+
+    // Возвращает выделение на строку задачи; завершённая и вытесненная из таблицы задача теряет выделение
+    private void restoreSelection(Object taskId) {
+        int selectedRow = taskTable.getSelectedRow();
+        if (selectedRow != -1 && taskId.equals(tableModel.getValueAt(selectedRow, 0))) {
+            return;
+        }
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if (taskId.equals(tableModel.getValueAt(row, 0))) {
+                taskTable.setRowSelectionInterval(row, row);
+                return;
+            }
+        }
+        taskTable.clearSelection();
     }
 
     // Метод для инициализации окна менеджера задач
@@ -187,7 +292,9 @@ public class ExecutorProgress {
             int selectedRow = taskTable.getSelectedRow();
             if (selectedRow != -1) {
                 String taskId = (String) tableModel.getValueAt(selectedRow, 0);
-                removeTask(taskId);
+                if (terminateHandler != null) {
+                    terminateHandler.accept(taskId);
+                }
             }
         });
 
@@ -204,16 +311,24 @@ public class ExecutorProgress {
 
 
 
-    // Метод для определения статуса задачи по её прогрессу
-    private String getTaskStatus(TaskProgress taskProgress) {
-        int progress = taskProgress.getProgress();
-        if (progress == 100) {
-            return "Complete";
-        } else if (progress > 50) {
-            return "In Progress";
-        } else {
-            return "Not Started";
+    // Метод для определения статуса завершённой задачи по её исходу
+    private String getTaskStatus(TaskMetrics.Outcome outcome) {
+        return switch (outcome) {
+            case SUCCESS -> "Complete";
+            case FAILED -> "Failed";
+            case CANCELLED -> "Cancelled";
+        };
+    }
+
+    private String formatNanos(long nanos) {
+        if (nanos < 0) {
+            return "n/a";
+        } else if (nanos < 1_000_000) {
+            return (nanos / 1000) + " µs";
+        } else if (nanos < 10_000_000_000L) {
+            return (nanos / 1_000_000) + " ms";
         }
+        return (nanos / 1_000_000_000) + " s";
     }
 
     // Метод для форматирования памяти в удобочитаемый формат
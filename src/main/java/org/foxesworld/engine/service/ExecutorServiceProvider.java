@@ -1,23 +1,77 @@
 package org.foxesworld.engine.service;
 
 import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.metrics.MetricsRegistry;
+import org.foxesworld.engine.metrics.TaskExecutionEvent;
 
 import javax.swing.*;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Comparator;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Background task executor of the engine.
+ * <p>
+ * Tasks run on a sized pool of platform threads unless they are {@link TaskKind#IO I/O-bound} and the
+ * provider is in virtual mode, in which case each of them gets its own virtual thread. Blocked
+ * downloads, HTTP calls and sound loading then cost no platform thread, while CPU-bound work stays
+ * on the sized pool. Virtual threads need Java 21; on older runtimes the virtual mode falls back to
+ * a cached pool of platform threads.
+ * </p>
+ * <p>
+ * The provider reads {@code executor-config.properties} from the classpath:
+ * </p>
+ * <ul>
+ *   <li>{@code executor.pool.size} — size of the platform pool, the constructor argument by default;</li>
+ *   <li>{@code executor.mode} — {@code platform} (default) runs every task on the platform pool,
+ *       {@code virtual} runs I/O tasks on virtual threads.</li>
+ * </ul>
+ * <p>
+ * The platform pool hands out queued tasks by {@link TaskPriority} lane, so a sound or an animation does not
+ * wait behind a long background sweep. Jobs that split into subtasks run on a work-stealing
+ * {@link ForkJoinPool} through {@link #submitSplittable}.
+ * </p>
+ * <p>
+ * Every task is tracked in {@link ExecutorProgress} under its name until it finishes and belongs to a group,
+ * its name unless given otherwise. {@link #completeTask(UUID)} and {@link #cancelGroup(String)} cancel the
+ * task's {@link CancellationToken} and interrupt its thread, so the task itself can notice and stop.
+ * </p>
+ */
 @SuppressWarnings("unused")
 public class ExecutorServiceProvider {
 
+    /**
+     * How I/O-bound tasks are executed.
+     */
+    public enum Mode {
+        PLATFORM, VIRTUAL
+    }
+
+    private static final String CONFIG_FILE = "executor-config.properties";
+    // Runnables submitted directly to getExecutorService() queue in the interactive lane
+    private static final Comparator<Runnable> TASK_ORDER = Comparator
+            .comparingInt((Runnable task) -> task instanceof TrackedTask<?> tracked ? tracked.priority.ordinal() : TaskPriority.INTERACTIVE.ordinal())
+            .thenComparingLong(task -> task instanceof TrackedTask<?> tracked ? tracked.order : Long.MAX_VALUE);
+
     private final ExecutorService executorService;
+    private final ExecutorService ioExecutorService;
     private final ExecutorProgress executorProgress;
     private final String threadNamePrefix;
-    private final ConcurrentHashMap<UUID, SwingWorker<?, ?>> taskMap = new ConcurrentHashMap<>();
+    private final Mode mode;
+    private final ForkJoinPool forkJoinPool;
+    private final ConcurrentHashMap<UUID, TrackedTask<?>> taskMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<UUID>> groups = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
 
     /**
      * Constructor to initialize the ExecutorServiceProvider with a specified pool size and thread name prefix.
@@ -28,30 +82,54 @@ public class ExecutorServiceProvider {
     public ExecutorServiceProvider(int poolSize, String threadNamePrefix) {
         this.threadNamePrefix = threadNamePrefix;
         this.executorProgress = new ExecutorProgress();
-        this.executorService = initializeExecutorService(poolSize);
+        Properties properties = loadProperties();
+        this.executorService = initializeExecutorService(poolSize, properties);
+        this.mode = parseMode(properties.getProperty("executor.mode"));
+        this.ioExecutorService = mode == Mode.VIRTUAL ? createVirtualExecutorService() : executorService;
+        this.forkJoinPool = createForkJoinPool();
+        this.executorProgress.setTerminateHandler(taskId -> completeTask(UUID.fromString(taskId)));
+    }
+
+    private Properties loadProperties() {
+        Properties properties = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input == null) {
+                Engine.LOGGER.warn("{} not found, using default settings.", CONFIG_FILE);
+            } else {
+                properties.load(input);
+            }
+        } catch (IOException ex) {
+            Engine.LOGGER.error("Error loading {}, using default settings: {}", CONFIG_FILE, ex.getMessage());
+        }
+        return properties;
     }
 
     /**
-     * Initializes the ExecutorService using configuration from a properties file or default settings.
+     * Initializes the platform ExecutorService using configuration from a properties file or default settings.
      *
      * @return An initialized ExecutorService.
      */
-    private ExecutorService initializeExecutorService(int poolSize) {
-        Properties properties = new Properties();
+    private ExecutorService initializeExecutorService(int poolSize, Properties properties) {
         Engine.LOGGER.info("Initializing ExecutorService with pool size: {}", poolSize);
-        try (InputStream input = getClass().getClassLoader().getResourceAsStream("executor-config.properties")) {
-            if (input == null) {
-                Engine.LOGGER.warn("executor-config.properties not found, using default settings.");
-                return createDefaultExecutorService(poolSize);
-            }
-            properties.load(input);
-            int configuredPoolSize = Integer.parseInt(properties.getProperty("executor.pool.size", String.valueOf(poolSize)));
-            Engine.LOGGER.info("Configured pool size from properties file: {}", configuredPoolSize);
-            return createExecutorService(configuredPoolSize);
-        } catch (IOException ex) {
-            Engine.LOGGER.error("Error loading executor-config.properties, using default settings: {}", ex.getMessage());
+        String configured = properties.getProperty("executor.pool.size");
+        if (configured == null) {
             return createDefaultExecutorService(poolSize);
         }
+        int configuredPoolSize = Integer.parseInt(configured.trim());
+        Engine.LOGGER.info("Configured pool size from properties file: {}", configuredPoolSize);
+        return createExecutorService(configuredPoolSize);
+    }
+
+    private Mode parseMode(String value) {
+        if (value == null || value.isBlank()) {
+            return Mode.PLATFORM;
+        }
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Engine.LOGGER.warn("Unknown executor.mode '{}', using platform threads", value);
+            return Mode.PLATFORM;
+        }
     }
 
     /**
@@ -61,7 +139,8 @@ public class ExecutorServiceProvider {
      */
     private ExecutorService createDefaultExecutorService(int poolSize) {
         Engine.LOGGER.info("Creating default ExecutorService with pool size: {}", poolSize);
-        return Executors.newFixedThreadPool(poolSize, new CustomThreadFactory(this.threadNamePrefix));
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(16, TASK_ORDER), new CustomThreadFactory(this.threadNamePrefix));
     }
 
     /**
@@ -76,123 +155,216 @@ public class ExecutorServiceProvider {
                 poolSize,
                 poolSize,
                 0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<>(),
+                new PriorityBlockingQueue<>(16, TASK_ORDER),
                 new CustomThreadFactory(this.threadNamePrefix),
                 new ThreadPoolExecutor.AbortPolicy()
         );
     }
 
     /**
-     * Submits a task to the executor service with progress tracking.
+     * Creates a virtual-thread-per-task executor. The engine targets Java 17, so the Java 21 API is
+     * looked up reflectively; without it a cached pool of platform threads is used.
+     *
+     * @return An ExecutorService for I/O-bound tasks.
+     */
+    private ExecutorService createVirtualExecutorService() {
+        String prefix = this.threadNamePrefix + "-io-";
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+            Engine.LOGGER.info("Running I/O tasks on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Engine.LOGGER.warn("Virtual threads are not available ({}), running I/O tasks on a cached thread pool",
+                    e instanceof InvocationTargetException ite ? ite.getTargetException() : e);
+            return Executors.newCachedThreadPool(new CustomThreadFactory(prefix.substring(0, prefix.length() - 1)));
+        }
+    }
+
+    private ForkJoinPool createForkJoinPool() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(this.threadNamePrefix + "-fj-" + threadNumber.getAndIncrement());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Submits an I/O-bound task to the executor service with progress tracking.
      *
      * @param task     The task to execute.
      * @param taskName The name of the task.
      * @return The UUID of the submitted task.
      */
     public UUID submitTask(Runnable task, String taskName) {
-        UUID taskId = UUID.randomUUID();
-        executorProgress.addTask(taskId.toString(), taskName);
-        Engine.LOGGER.debug("Submitting task: {} with ID: {}", taskName, taskId);
-
-        SwingWorker<Void, Integer> worker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() {
-                try {
-                    task.run();
-                    publish(100);  // Mark progress as complete
-                    Engine.LOGGER.debug("Task completed: {} with ID: {}", taskName, taskId);
-                } finally {
-                    executorProgress.removeTask(taskId.toString());
-                    taskMap.remove(taskId);
-                    Engine.LOGGER.debug("Task removed: {} with ID: {}", taskName, taskId);
-                }
-                return null;
-            }
-
-            @Override
-            protected void process(List<Integer> chunks) {
-                for (int progress : chunks) {
-                    executorProgress.updateTask(taskId.toString(), progress);
-                }
-            }
+        return submitTask(task, taskName, TaskKind.IO);
+    }
 
-            @Override
-            protected void done() {
-                try {
-                    get();
-                } catch (InterruptedException | ExecutionException e) {
-                    Engine.LOGGER.error("Error executing task: {} with ID: {}: {}", taskName, taskId, e.getMessage());
-                }
-            }
-        };
+    /**
+     * Submits a task to the executor of its kind with progress tracking.
+     *
+     * @param task     The task to execute.
+     * @param taskName The name of the task.
+     * @param kind     Whether the task is I/O- or CPU-bound.
+     * @return The UUID of the submitted task.
+     */
+    public UUID submitTask(Runnable task, String taskName, TaskKind kind) {
+        return submitTask(task, taskName, kind, TaskPriority.INTERACTIVE, taskName);
+    }
 
-        executorService.submit(worker);
-        taskMap.put(taskId, worker);
-        return taskId;
+    /**
+     * Submits a task with a priority lane and a group with progress tracking.
+     *
+     * @param task     The task to execute. It can check {@link CancellationToken#current()} to stop early.
+     * @param taskName The name of the task.
+     * @param kind     Whether the task is I/O- or CPU-bound.
+     * @param priority The lane of the task on the platform pool.
+     * @param group    The group the task can be cancelled with, {@code null} for its name.
+     * @return The UUID of the submitted task.
+     */
+    public UUID submitTask(Runnable task, String taskName, TaskKind kind, TaskPriority priority, String group) {
+        return track(taskName, kind, priority, group, token -> {
+            task.run();
+            return null;
+        }, null);
     }
 
     /**
-     * Submits a dynamic task to the executor service with a callback and progress tracking.
+     * Submits an I/O-bound dynamic task to the executor service with a callback and progress tracking.
      *
      * @param task     The task to execute.
      * @param taskName The name of the task.
-     * @param callback The callback to execute with the result of the task.
+     * @param callback The callback to execute on the EDT with the result of the task.
      * @param <T>      The type of the result produced by the task.
      * @return The UUID of the submitted task.
      */
     public <T> UUID submitDynamicTaskWithCallback(Callable<T> task, String taskName, Consumer<T> callback) {
-        UUID taskId = UUID.randomUUID();
-        executorProgress.addTask(taskId.toString(), taskName);
-        Engine.LOGGER.debug("Submitting dynamic task: {} with ID: {}", taskName, taskId);
-
-        SwingWorker<T, Integer> worker = new SwingWorker<>() {
-            @Override
-            protected T doInBackground() throws Exception {
-                T result = task.call();
-                publish(100);  // Mark progress as complete
-                return result;
-            }
+        return submitDynamicTaskWithCallback(task, taskName, TaskKind.IO, callback);
+    }
 
-            @Override
-            protected void process(List<Integer> chunks) {
-                for (int progress : chunks) {
-                    executorProgress.updateTask(taskId.toString(), progress);
-                }
-            }
+    /**
+     * Submits a dynamic task to the executor of its kind with a callback and progress tracking.
+     *
+     * @param task     The task to execute.
+     * @param taskName The name of the task.
+     * @param kind     Whether the task is I/O- or CPU-bound.
+     * @param callback The callback to execute on the EDT with the result of the task.
+     * @param <T>      The type of the result produced by the task.
+     * @return The UUID of the submitted task.
+     */
+    public <T> UUID submitDynamicTaskWithCallback(Callable<T> task, String taskName, TaskKind kind, Consumer<T> callback) {
+        return submitDynamicTaskWithCallback(task, taskName, kind, TaskPriority.INTERACTIVE, taskName, callback);
+    }
 
-            @Override
-            protected void done() {
-                try {
-                    T result = get();
-                    SwingUtilities.invokeLater(() -> {
-                        if (callback != null) {
-                            callback.accept(result);
-                        }
-                    });
-                } catch (Exception e) {
-                    Engine.LOGGER.error("Error executing dynamic task: {} with ID: {}: {}", taskName, taskId, e.getMessage());
-                } finally {
-                    executorProgress.removeTask(taskId.toString());
-                    taskMap.remove(taskId);
-                    Engine.LOGGER.debug("Dynamic task removed: {} with ID: {}", taskName, taskId);
-                }
+    /**
+     * Submits a dynamic task with a priority lane and a group, a callback and progress tracking.
+     *
+     * @param task     The task to execute.
+     * @param taskName The name of the task.
+     * @param kind     Whether the task is I/O- or CPU-bound.
+     * @param priority The lane of the task on the platform pool.
+     * @param group    The group the task can be cancelled with, {@code null} for its name.
+     * @param callback The callback to execute on the EDT with the result of the task.
+     * @param <T>      The type of the result produced by the task.
+     * @return The UUID of the submitted task.
+     */
+    public <T> UUID submitDynamicTaskWithCallback(Callable<T> task, String taskName, TaskKind kind, TaskPriority priority,
+                                                  String group, Consumer<T> callback) {
+        return track(taskName, kind, priority, group, token -> task.call(), callback);
+    }
+
+    /**
+     * Runs a job that splits itself into subtasks on the work-stealing pool, with progress tracking.
+     * <p>
+     * The job is built from the task's {@link CancellationToken} so its subtasks can check it; cancelling
+     * the task also cancels the root {@link ForkJoinTask}.
+     * </p>
+     *
+     * @param job      Builds the root task from the cancellation token.
+     * @param taskName The name of the task.
+     * @param group    The group the task can be cancelled with, {@code null} for its name.
+     * @param callback The callback to execute on the EDT with the result, may be {@code null}.
+     * @param <T>      The type of the result produced by the job.
+     * @return The UUID of the submitted task.
+     */
+    public <T> UUID submitSplittable(Function<CancellationToken, ForkJoinTask<T>> job, String taskName, String group,
+                                     Consumer<T> callback) {
+        return track(taskName, null, TaskPriority.BACKGROUND, group, token -> {
+            ForkJoinTask<T> root = job.apply(token);
+            TrackedTask<?> tracked = TrackedTask.CURRENT.get();
+            tracked.onCancel = () -> root.cancel(true);
+            if (token.isCancelled()) {
+                root.cancel(true);
             }
-        };
+            return forkJoinPool.invoke(root);
+        }, callback);
+    }
 
-        executorService.submit(worker);
-        taskMap.put(taskId, worker);
+    private <T> UUID track(String taskName, TaskKind kind, TaskPriority priority, String group,
+                           TaskBody<T> body, Consumer<T> callback) {
+        UUID taskId = UUID.randomUUID();
+        String groupName = group != null ? group : taskName;
+        executorProgress.addTask(taskId.toString(), taskName);
+        Engine.LOGGER.debug("Submitting {} task: {} with ID: {} in group {}", priority, taskName, taskId, groupName);
+
+        TrackedTask<T> task = new TrackedTask<>(taskId, taskName, groupName, priority, sequence.getAndIncrement(), body, callback);
+        taskMap.put(taskId, task);
+        groups.computeIfAbsent(groupName, name -> ConcurrentHashMap.newKeySet()).add(taskId);
+        try {
+            // Splittable jobs only wait on the platform pool while the fork/join pool works
+            (kind == TaskKind.IO ? ioExecutorService : executorService).execute(task);
+        } catch (RejectedExecutionException e) {
+            forget(task);
+            executorProgress.removeTask(taskId.toString());
+            Engine.LOGGER.warn("Task rejected: {} with ID: {}", taskName, taskId);
+        }
         return taskId;
     }
 
+    private void forget(TrackedTask<?> task) {
+        taskMap.remove(task.taskId);
+        groups.computeIfPresent(task.group, (name, ids) -> {
+            ids.remove(task.taskId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Cancels every unfinished task of a group, e.g. all tasks of the file loader.
+     *
+     * @param group The group name.
+     * @return The number of cancelled tasks.
+     */
+    public int cancelGroup(String group) {
+        Set<UUID> ids = groups.remove(group);
+        if (ids == null) {
+            return 0;
+        }
+        int cancelled = 0;
+        for (UUID taskId : ids) {
+            TrackedTask<?> task = taskMap.get(taskId);
+            if (task != null && task.cancel(true)) {
+                cancelled++;
+            }
+        }
+        Engine.LOGGER.info("Cancelled {} tasks of group {}", cancelled, group);
+        return cancelled;
+    }
+
     /**
      * Completes the task with the given UUID.
      *
      * @param taskId The UUID of the task to complete.
      */
     public void completeTask(UUID taskId) {
-        SwingWorker<?, ?> worker = taskMap.remove(taskId);
-        if (worker != null) {
-            worker.cancel(true);
+        TrackedTask<?> task = taskMap.get(taskId);
+        if (task != null) {
+            task.cancel(true);
             executorProgress.removeTask(taskId.toString());
             Engine.LOGGER.info("Task completed: {}", taskId);
         } else {
@@ -234,7 +406,7 @@ public class ExecutorServiceProvider {
     }
 
     /**
-     * Gets the ExecutorService instance.
+     * Gets the platform ExecutorService instance, which runs CPU-bound tasks.
      *
      * @return The ExecutorService instance.
      */
@@ -242,20 +414,48 @@ public class ExecutorServiceProvider {
         return this.executorService;
     }
 
+    /**
+     * Gets the ExecutorService for I/O-bound tasks: virtual threads in virtual mode, the platform pool otherwise.
+     *
+     * @return The ExecutorService for I/O-bound tasks.
+     */
+    public ExecutorService getIoExecutorService() {
+        return this.ioExecutorService;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the work-stealing pool used by {@link #submitSplittable}.
+     *
+     * @return The ForkJoinPool instance.
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
     /**
      * Shuts down the ExecutorService.
      */
     public void shutdown() {
         Engine.LOGGER.info("Shutting down ExecutorService");
+        if (ioExecutorService != executorService) {
+            ioExecutorService.shutdown();
+        }
         executorService.shutdown();
+        forkJoinPool.shutdownNow();
         try {
             if (!executorService.awaitTermination(60, TimeUnit.MILLISECONDS)) {
+                ioExecutorService.shutdownNow();
                 executorService.shutdownNow();
                 if (!executorService.awaitTermination(60, TimeUnit.MILLISECONDS)) {
                     Engine.LOGGER.warn("ExecutorService did not terminate");
                 }
             }
         } catch (InterruptedException ie) {
+            ioExecutorService.shutdownNow();
             executorService.shutdownNow();
             Thread.currentThread().interrupt();
         }
@@ -269,4 +469,123 @@ public class ExecutorServiceProvider {
     public ExecutorProgress getExecutorProgress() {
         return executorProgress;
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface TaskBody<T> {
+        T run(CancellationToken token) throws Exception;
+    }
+
+    /**
+     * A submitted task: ordered by lane and submission on the platform pool, cancellable through its token.
+     */
+    private final class TrackedTask<T> extends FutureTask<T> {
+        private static final ThreadLocal<TrackedTask<?>> CURRENT = new ThreadLocal<>();
+
+        private final UUID taskId;
+        private final String taskName;
+        private final String group;
+        private final TaskPriority priority;
+        private final long order;
+        private final CancellationToken token;
+        private final Consumer<T> callback;
+        private final long submittedNanos = System.nanoTime();
+        private volatile Runnable onCancel;
+        // Set by done(), which runs inside super.run() unless the task is cancelled from another thread
+        private volatile TaskMetrics.Outcome outcome;
+
+        private TrackedTask(UUID taskId, String taskName, String group, TaskPriority priority, long order,
+                            TaskBody<T> body, Consumer<T> callback) {
+            this(taskId, taskName, group, priority, order, new CancellationToken(), body, callback);
+        }
+
+        private TrackedTask(UUID taskId, String taskName, String group, TaskPriority priority, long order,
+                            CancellationToken token, TaskBody<T> body, Consumer<T> callback) {
+            super(() -> body.run(token));
+            this.taskId = taskId;
+            this.taskName = taskName;
+            this.group = group;
+            this.priority = priority;
+            this.order = order;
+            this.token = token;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            CancellationToken previous = token.bind();
+            CURRENT.set(this);
+            executorProgress.startTask(taskId.toString());
+            TaskExecutionEvent event = new TaskExecutionEvent();
+            long started = System.nanoTime();
+            event.begin();
+            try {
+                super.run();
+            } finally {
+                CURRENT.remove();
+                CancellationToken.restore(previous);
+                record(event, started);
+            }
+        }
+
+        private void record(TaskExecutionEvent event, long started) {
+            TaskMetrics.Outcome result = isCancelled() || outcome == null ? TaskMetrics.Outcome.CANCELLED : outcome;
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.record("task.queueWait.nanos", started - submittedNanos);
+            metrics.recordSince("task.run.nanos", started);
+            metrics.increment("task." + result.name().toLowerCase(Locale.ROOT));
+            event.end();
+            if (event.shouldCommit()) {
+                event.taskName = taskName;
+                event.group = group;
+                event.priority = priority.name();
+                event.queueWait = started - submittedNanos;
+                event.outcome = result.name();
+                event.commit();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // The token is set first, so the task sees it when the interrupt wakes it up
+            token.cancel();
+            Runnable hook = onCancel;
+            if (hook != null) {
+                hook.run();
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        protected void done() {
+            forget(this);
+            TaskMetrics.Outcome outcome = TaskMetrics.Outcome.SUCCESS;
+            try {
+                if (isCancelled()) {
+                    outcome = TaskMetrics.Outcome.CANCELLED;
+                    Engine.LOGGER.info("Task cancelled: {} with ID: {}", taskName, taskId);
+                    return;
+                }
+                T result = get();
+                Engine.LOGGER.debug("Task completed: {} with ID: {}", taskName, taskId);
+                if (callback != null) {
+                    SwingUtilities.invokeLater(() -> callback.accept(result));
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CancellationException) {
+                    outcome = TaskMetrics.Outcome.CANCELLED;
+                    Engine.LOGGER.info("Task stopped after cancellation: {} with ID: {}", taskName, taskId);
+                } else {
+                    outcome = TaskMetrics.Outcome.FAILED;
+                    Engine.LOGGER.error("Error executing task: {} with ID: {}: {}", taskName, taskId, cause.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Normally runs on the task's own thread, right after the task body
+                this.outcome = outcome;
+                executorProgress.finishTask(taskId.toString(), outcome);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.foxesworld.engine.service;
+
+import org.foxesworld.engine.Engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Optional engine services that are created on first use.
+ * <p>
+ * A service is registered with a supplier and built the first time {@link #get(Class)} asks for it.
+ * The supplier runs once even if several threads ask at the same time. Profiles that never touch a
+ * service (e.g. Discord presence or server polling) do not pay for it at start-up or in memory.
+ * If a supplier throws, nothing is stored and the next call tries again.
+ * </p>
+ * <p>
+ * With warm-up enabled, {@link #warmUp(ExecutorServiceProvider)} builds the remaining services on the
+ * background lane once the launcher window is up, so the first use does not wait. Warm-up is off by default
+ * and is turned on with {@link #setWarmUp(boolean)} or the {@value #WARM_UP_PROPERTY} system property.
+ * </p>
+ */
+public class LazyServiceRegistry {
+
+    public static final String WARM_UP_PROPERTY = "launcher.warmUpServices";
+    private static final String WARM_UP_GROUP = "serviceWarmUp";
+
+    private final Map<Class<?>, Memoized<?>> services = new ConcurrentHashMap<>();
+    private final AtomicBoolean warmedUp = new AtomicBoolean();
+    private volatile boolean warmUp = Boolean.getBoolean(WARM_UP_PROPERTY);
+
+    /**
+     * Registers the supplier of a service, replacing an earlier registration and its instance.
+     *
+     * @param type     the service type, used as the key
+     * @param supplier creates the service, called at most once per successful build
+     */
+    public <T> void register(Class<T> type, Supplier<? extends T> supplier) {
+        services.put(type, new Memoized<>(type, supplier));
+    }
+
+    /**
+     * Registers an already created service.
+     */
+    public <T> void set(Class<T> type, T instance) {
+        Memoized<T> memoized = new Memoized<>(type, () -> instance);
+        memoized.value = instance;
+        services.put(type, memoized);
+    }
+
+    /**
+     * Returns the service, building it on first use.
+     *
+     * @return the service, or {@code null} if none is registered for {@code type}
+     */
+    public <T> T get(Class<T> type) {
+        Memoized<?> memoized = services.get(type);
+        return memoized != null ? type.cast(memoized.get()) : null;
+    }
+
+    /**
+     * Returns the service only if it has already been built.
+     */
+    public <T> T peek(Class<T> type) {
+        Memoized<?> memoized = services.get(type);
+        return memoized != null ? type.cast(memoized.value) : null;
+    }
+
+    public boolean isRegistered(Class<?> type) {
+        return services.containsKey(type);
+    }
+
+    public boolean isBuilt(Class<?> type) {
+        return peek(type) != null;
+    }
+
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Builds the services not built yet on the background lane, one task per service. Does nothing when
+     * warm-up is disabled, and runs only once.
+     */
+    public void warmUp(ExecutorServiceProvider executor) {
+        if (!warmUp || !warmedUp.compareAndSet(false, true)) {
+            return;
+        }
+        services.values().forEach(memoized -> {
+            if (memoized.value == null) {
+                executor.submitTask(memoized::get, "Warm up " + memoized.type.getSimpleName(),
+                        TaskKind.IO, TaskPriority.BACKGROUND, WARM_UP_GROUP);
+            }
+        });
+    }
+
+    private static final class Memoized<T> implements Supplier<T> {
+        private final Class<T> type;
+        private final Supplier<? extends T> supplier;
+        private volatile T value;
+
+        private Memoized(Class<T> type, Supplier<? extends T> supplier) {
+            this.type = type;
+            this.supplier = supplier;
+        }
+
+        @Override
+        public T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        long started = System.nanoTime();
+                        result = supplier.get();
+                        value = result;
+                        Engine.LOGGER.debug("Service {} created in {} ms on {}", type.getSimpleName(),
+                                (System.nanoTime() - started) / 1_000_000, Thread.currentThread().getName());
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
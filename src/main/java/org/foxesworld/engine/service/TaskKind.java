@@ -0,0 +1,11 @@
+package org.foxesworld.engine.service;
+
+/**
+ * What a background task spends its time on, which decides the executor it runs on.
+ */
+public enum TaskKind {
+    /** Mostly waits for the network or the disk: HTTP calls, downloads, sound and file loading. */
+    IO,
+    /** Keeps a core busy: hashing, decoding, layout. Always runs on the sized platform pool. */
+    CPU
+}
@@ -0,0 +1,107 @@
+package org.foxesworld.engine.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free store of the measurements of finished tasks.
+ * <p>
+ * Finished tasks are written into a fixed ring buffer: a writer claims a slot with one atomic increment
+ * and the oldest records are overwritten, so recording costs the same under any task churn and never
+ * blocks. Per-thread CPU time and allocated bytes come from the JVM's {@link ThreadMXBean} when it
+ * supports them; otherwise they are reported as {@code -1}.
+ * </p>
+ */
+public class TaskMetrics {
+
+    /**
+     * How a task ended.
+     */
+    public enum Outcome {
+        SUCCESS, FAILED, CANCELLED
+    }
+
+    /**
+     * Measurements of one finished task. Times are in nanoseconds; unavailable values are {@code -1}.
+     */
+    public record TaskRecord(String taskId, String taskName, long queueWaitNanos, long runNanos, long cpuNanos,
+                             long allocatedBytes, Outcome outcome, long finishedAtMillis) {
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean SUN_THREADS =
+            THREADS instanceof com.sun.management.ThreadMXBean sun ? sun : null;
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private static final boolean ALLOCATION = SUN_THREADS != null && SUN_THREADS.isThreadAllocatedMemorySupported()
+            && SUN_THREADS.isThreadAllocatedMemoryEnabled();
+
+    private final AtomicReferenceArray<TaskRecord> ring;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong[] outcomes = new AtomicLong[Outcome.values().length];
+
+    public TaskMetrics() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TaskMetrics(int capacity) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Returns the CPU time of the current thread, or {@code -1} if it cannot be measured (e.g. on a virtual thread).
+     */
+    static long currentThreadCpuNanos() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far, or {@code -1} if not supported.
+     */
+    @SuppressWarnings("deprecation")
+    static long currentThreadAllocatedBytes() {
+        return ALLOCATION ? SUN_THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    public void record(TaskRecord record) {
+        long slot = written.getAndIncrement();
+        ring.set((int) (slot % ring.length()), record);
+        outcomes[record.outcome().ordinal()].incrementAndGet();
+    }
+
+    /**
+     * Returns up to {@code limit} of the latest records, newest first. A record being overwritten concurrently
+     * may be skipped.
+     */
+    public List<TaskRecord> latest(int limit) {
+        long end = written.get();
+        long start = Math.max(0, end - Math.min(limit, ring.length()));
+        List<TaskRecord> records = new ArrayList<>((int) (end - start));
+        for (long slot = end - 1; slot >= start; slot--) {
+            TaskRecord record = ring.get((int) (slot % ring.length()));
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns the number of tasks that ended with {@code outcome} since the start.
+     */
+    public long count(Outcome outcome) {
+        return outcomes[outcome.ordinal()].get();
+    }
+
+    public long getTotalRecorded() {
+        return written.get();
+    }
+}
@@ -0,0 +1,14 @@
+package org.foxesworld.engine.service;
+
+/**
+ * Scheduling lane of a task on the platform pool. A queued task of a higher lane always starts before
+ * queued tasks of lower lanes; tasks of the same lane start in submission order.
+ */
+public enum TaskPriority {
+    /** Work the user is looking at right now: animations, hover and paint preparation. */
+    UI_CRITICAL,
+    /** Work the user is waiting for: sounds, button actions, requests started from the UI. */
+    INTERACTIVE,
+    /** Long-running work nobody waits for: file scans, hash sweeps, downloads. */
+    BACKGROUND
+}
@@ -2,12 +2,19 @@ package org.foxesworld.engine.service;
 
 public class TaskProgress {
     private final String taskName;
-    private int progress;
-    private long memoryUsage;
-    private boolean isCompleted;
+    private final long submittedNanos;
+    private volatile int progress;
+    private volatile long memoryUsage;
+    private volatile boolean isCompleted;
+    // Set by the thread that runs the task, read back by the same thread when it finishes
+    private volatile long startedNanos;
+    private volatile Thread runner;
+    private long cpuAtStart = -1;
+    private long allocatedAtStart = -1;
 
     public TaskProgress(String taskName) {
         this.taskName = taskName;
+        this.submittedNanos = System.nanoTime();
         this.progress = 0;
         this.memoryUsage = 0;
         this.isCompleted = false;
@@ -40,4 +47,35 @@ public class TaskProgress {
     public void complete() {
         this.isCompleted = true;
     }
+
+    public boolean isStarted() {
+        return startedNanos != 0;
+    }
+
+    public long getSubmittedNanos() {
+        return submittedNanos;
+    }
+
+    public long getStartedNanos() {
+        return startedNanos;
+    }
+
+    public Thread getRunner() {
+        return runner;
+    }
+
+    void start() {
+        runner = Thread.currentThread();
+        cpuAtStart = TaskMetrics.currentThreadCpuNanos();
+        allocatedAtStart = TaskMetrics.currentThreadAllocatedBytes();
+        startedNanos = System.nanoTime();
+    }
+
+    long cpuAtStart() {
+        return cpuAtStart;
+    }
+
+    long allocatedAtStart() {
+        return allocatedAtStart;
+    }
 }
@@ -5,6 +5,8 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.service.TaskKind;
+import org.foxesworld.engine.service.TaskPriority;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -55,7 +57,7 @@ public class Sound {
             } catch (IOException e) {
                 Engine.getLOGGER().error("Failed to load sounds", e);
             }
-        }, "Load Sounds Task");
+        }, "Load Sounds Task", TaskKind.IO, TaskPriority.BACKGROUND, null);
     }
 
     public List<String> getSounds(String category, String subCategory) {
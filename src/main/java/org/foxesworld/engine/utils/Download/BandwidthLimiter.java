@@ -0,0 +1,239 @@
+package org.foxesworld.engine.utils.Download;
+
+import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.EngineData;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket limit on the total download bandwidth, shared by all download streams.
+ * <p>
+ * The limit is split between the file classes that are downloading at the moment in proportion to their
+ * weights, so a large mod pack does not hold back libraries the game needs first, and a class that is
+ * alone gets the whole limit. A limit of {@code 0} disables throttling. The limit can be changed at any
+ * time with {@link #setLimit(long)}, e.g. from the settings screen.
+ * </p>
+ */
+public final class BandwidthLimiter {
+
+    /**
+     * Classes of downloaded files with their default share weights.
+     */
+    public enum FileClass {
+        LIBRARIES(4), ASSETS(2), MODS(2), OTHER(1);
+
+        private final int defaultWeight;
+
+        FileClass(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+
+        /**
+         * Classifies a file by the directories in its path.
+         */
+        public static FileClass of(String filename) {
+            String path = "/" + filename.replace('\\', '/').toLowerCase(Locale.ROOT);
+            if (path.contains("/libraries/") || path.contains("/natives/")) {
+                return LIBRARIES;
+            } else if (path.contains("/assets/")) {
+                return ASSETS;
+            } else if (path.contains("/mods/")) {
+                return MODS;
+            }
+            return OTHER;
+        }
+    }
+
+    // Tokens a bucket may save up while its streams are idle
+    private static final double BURST_SECONDS = 0.25;
+    private static final BandwidthLimiter INSTANCE = new BandwidthLimiter();
+
+    private final Map<FileClass, Bucket> buckets = new EnumMap<>(FileClass.class);
+    private long bytesPerSecond;
+    private boolean configured;
+
+    private BandwidthLimiter() {
+        for (FileClass fileClass : FileClass.values()) {
+            buckets.put(fileClass, new Bucket(fileClass.defaultWeight));
+        }
+    }
+
+    public static BandwidthLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Applies {@code bandwidthLimit} (KB/s) and {@code bandwidthWeights} of the download manager.
+     * Only the first call has an effect, so a limit set at runtime is not reset by new loaders.
+     */
+    public synchronized void configure(EngineData.DownloadManager downloadManager) {
+        if (configured || downloadManager == null) {
+            return;
+        }
+        configured = true;
+        bytesPerSecond = Math.max(0, downloadManager.getBandwidthLimit()) * 1024L;
+        Map<String, Integer> weights = downloadManager.getBandwidthWeights();
+        if (weights != null) {
+            weights.forEach((name, weight) -> {
+                try {
+                    buckets.get(FileClass.valueOf(name.toUpperCase(Locale.ROOT))).weight = Math.max(1, weight);
+                } catch (IllegalArgumentException e) {
+                    Engine.LOGGER.warn("Unknown file class in bandwidthWeights: {}", name);
+                }
+            });
+        }
+    }
+
+    /**
+     * Changes the total limit.
+     *
+     * @param bytesPerSecond the new limit in bytes per second, {@code 0} for no limit
+     */
+    public synchronized void setLimit(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        configured = true;
+    }
+
+    public synchronized long getLimit() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Wraps a response body so that reading from it is throttled as a stream of {@code fileClass}.
+     * The stream counts as active until it is closed.
+     */
+    public InputStream wrap(InputStream in, FileClass fileClass) {
+        open(fileClass);
+        return new FilterInputStream(in) {
+            private boolean closed;
+
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    acquire(fileClass, 1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    acquire(fileClass, read);
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    synchronized (this) {
+                        if (!closed) {
+                            closed = true;
+                            BandwidthLimiter.this.close(fileClass);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Takes {@code bytes} tokens of the class, waiting while its bucket is in debt.
+     */
+    void acquire(FileClass fileClass, int bytes) throws InterruptedIOException {
+        long waitNanos = take(fileClass, bytes);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+    }
+
+    /**
+     * Takes {@code bytes} tokens of the class without waiting.
+     *
+     * @return how long the stream should pause before reading more, in nanoseconds, {@code 0} for no pause
+     */
+    synchronized long take(FileClass fileClass, int bytes) {
+        if (bytesPerSecond == 0) {
+            return 0;
+        }
+        Bucket bucket = buckets.get(fileClass);
+        double rate = shareOf(bucket);
+        bucket.refill(rate);
+        bucket.tokens -= bytes;
+        return bucket.tokens < 0 ? (long) (-bucket.tokens / rate * 1_000_000_000L) : 0;
+    }
+
+    /**
+     * Marks a stream of the class as active until the matching {@link #close(FileClass)}.
+     */
+    void open(FileClass fileClass) {
+        register(fileClass, 1);
+    }
+
+    void close(FileClass fileClass) {
+        register(fileClass, -1);
+    }
+
+    private synchronized void register(FileClass fileClass, int delta) {
+        Bucket bucket = buckets.get(fileClass);
+        // Refill at the old share before the shares change
+        if (bytesPerSecond > 0) {
+            for (Bucket other : buckets.values()) {
+                if (other.streams > 0) {
+                    other.refill(shareOf(other));
+                }
+            }
+        }
+        bucket.streams += delta;
+        if (bucket.streams == 1 && delta > 0) {
+            bucket.tokens = 0;
+            bucket.lastRefill = System.nanoTime();
+        }
+    }
+
+    private double shareOf(Bucket bucket) {
+        int activeWeight = 0;
+        for (Bucket other : buckets.values()) {
+            if (other.streams > 0) {
+                activeWeight += other.weight;
+            }
+        }
+        if (activeWeight == 0 || bucket.streams == 0) {
+            return bytesPerSecond;
+        }
+        return (double) bytesPerSecond * bucket.weight / activeWeight;
+    }
+
+    private static final class Bucket {
+        private int weight;
+        private int streams;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        private Bucket(int weight) {
+            this.weight = weight;
+        }
+
+        private void refill(double rate) {
+            long now = System.nanoTime();
+            tokens = Math.min(rate * BURST_SECONDS, tokens + rate * (now - lastRefill) / 1_000_000_000.0);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.foxesworld.engine.utils.Download;
+
+import org.foxesworld.engine.fileLoader.ChunkManifest;
+import org.foxesworld.engine.utils.HashService;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Rebuilds a file from an outdated local copy and the changed blocks of the remote file.
+ * <p>
+ * The local file is scanned with an rsync-style rolling checksum, so blocks that moved because
+ * bytes were inserted or removed before them are still found. Every block of the remote file that
+ * has no match in the local copy is requested as a byte range, consecutive missing blocks being
+ * merged into a single request.
+ * </p>
+ */
+public class DeltaPatcher {
+
+    /**
+     * Supplies byte ranges of the remote file.
+     */
+    @FunctionalInterface
+    public interface RangeSource {
+        /**
+         * Opens a stream over the inclusive byte range {@code [from, to]} of the remote file.
+         */
+        InputStream open(long from, long to) throws IOException;
+    }
+
+    private final ChunkManifest manifest;
+    private final int blockSize;
+    private final List<ChunkManifest.Chunk> chunks;
+
+    public DeltaPatcher(ChunkManifest manifest) {
+        this.manifest = manifest;
+        this.blockSize = manifest.getBlockSize();
+        this.chunks = manifest.getChunks();
+    }
+
+    /**
+     * Finds the blocks of the remote file that are already present in the local file.
+     *
+     * @param local the outdated local file
+     * @return offsets in the local file keyed by remote block index
+     */
+    public Map<Integer, Long> findLocalBlocks(File local) throws IOException {
+        Map<Long, List<Integer>> byWeak = new HashMap<>();
+        int fullBlocks = (int) (manifest.getSize() / blockSize);
+        for (int i = 0; i < fullBlocks; i++) {
+            byWeak.computeIfAbsent(chunks.get(i).getWeak(), k -> new ArrayList<>(1)).add(i);
+        }
+
+        Map<Integer, Long> found = new HashMap<>();
+        MessageDigest md5 = HashService.Algorithm.MD5.newDigest();
+        byte[] window = new byte[blockSize];
+        try (InputStream in = new BufferedInputStream(new FileInputStream(local), 1 << 16)) {
+            long position = 0;
+            int head = 0;
+            boolean full = readFully(in, window) == blockSize;
+            RollingChecksum checksum = new RollingChecksum(window);
+            while (full) {
+                List<Integer> candidates = byWeak.get(checksum.value());
+                if (candidates != null && matchStrong(md5, window, head, candidates, position, found)) {
+                    // Matched blocks do not overlap, continue right after this one
+                    position += blockSize;
+                    head = 0;
+                    full = readFully(in, window) == blockSize;
+                    checksum = new RollingChecksum(window);
+                    continue;
+                }
+                int next = in.read();
+                if (next < 0) {
+                    break;
+                }
+                byte out = window[head];
+                window[head] = (byte) next;
+                head = (head + 1) % blockSize;
+                position++;
+                checksum.roll(out, (byte) next);
+            }
+        }
+        findTail(local, md5, found);
+        return found;
+    }
+
+    /**
+     * Writes the new file into {@code target} using local blocks where possible.
+     *
+     * @param local      the outdated local file
+     * @param localBlocks result of {@link #findLocalBlocks(File)}
+     * @param target     the file to write, truncated first
+     * @param source     supplier of the missing byte ranges
+     * @param progress   receives the number of bytes written, may be {@code null}
+     * @return MD5 of the written file
+     */
+    public String rebuild(File local, Map<Integer, Long> localBlocks, File target, RangeSource source, LongConsumer progress) throws IOException {
+        MessageDigest md5 = HashService.Algorithm.MD5.newDigest();
+        byte[] buffer = new byte[Math.max(blockSize, 1 << 16)];
+        try (RandomAccessFile in = new RandomAccessFile(local, "r");
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(target), 1 << 16)) {
+            int i = 0;
+            while (i < chunks.size()) {
+                Long localOffset = localBlocks.get(i);
+                if (localOffset != null) {
+                    int length = blockLength(i);
+                    in.seek(localOffset);
+                    in.readFully(buffer, 0, length);
+                    out.write(buffer, 0, length);
+                    md5.update(buffer, 0, length);
+                    report(progress, length);
+                    i++;
+                    continue;
+                }
+                int last = i;
+                while (last + 1 < chunks.size() && !localBlocks.containsKey(last + 1)) {
+                    last++;
+                }
+                long from = (long) i * blockSize;
+                long to = (long) last * blockSize + blockLength(last) - 1;
+                long expected = to - from + 1;
+                long copied = 0;
+                try (InputStream remote = source.open(from, to)) {
+                    int read;
+                    while (copied < expected && (read = remote.read(buffer, 0, (int) Math.min(buffer.length, expected - copied))) != -1) {
+                        out.write(buffer, 0, read);
+                        md5.update(buffer, 0, read);
+                        copied += read;
+                        report(progress, read);
+                    }
+                }
+                if (copied != expected) {
+                    throw new EOFException("Range " + from + "-" + to + " ended after " + copied + " bytes");
+                }
+                i = last + 1;
+            }
+        }
+        return HashService.toHex(md5.digest());
+    }
+
+    /**
+     * Counts the bytes of the remote file that are covered by local blocks.
+     */
+    public long reusedBytes(Map<Integer, Long> localBlocks) {
+        long reused = 0;
+        for (int index : localBlocks.keySet()) {
+            reused += blockLength(index);
+        }
+        return reused;
+    }
+
+    private boolean matchStrong(MessageDigest md5, byte[] window, int head, List<Integer> candidates, long position, Map<Integer, Long> found) {
+        md5.update(window, head, blockSize - head);
+        md5.update(window, 0, head);
+        String strong = HashService.toHex(md5.digest());
+        boolean matched = false;
+        for (int index : candidates) {
+            if (strong.equalsIgnoreCase(chunks.get(index).getStrong())) {
+                found.putIfAbsent(index, position);
+                matched = true;
+            }
+        }
+        return matched;
+    }
+
+    // The last block is shorter than the window, so it is only looked for at the end of the local file
+    private void findTail(File local, MessageDigest md5, Map<Integer, Long> found) throws IOException {
+        int lastIndex = chunks.size() - 1;
+        if (lastIndex < 0 || found.containsKey(lastIndex)) {
+            return;
+        }
+        int tailLength = blockLength(lastIndex);
+        if (tailLength == blockSize || local.length() < tailLength) {
+            return;
+        }
+        byte[] tail = new byte[tailLength];
+        long offset = local.length() - tailLength;
+        try (RandomAccessFile in = new RandomAccessFile(local, "r")) {
+            in.seek(offset);
+            in.readFully(tail);
+        }
+        if (HashService.toHex(md5.digest(tail)).equalsIgnoreCase(chunks.get(lastIndex).getStrong())) {
+            found.put(lastIndex, offset);
+        }
+    }
+
+    private int blockLength(int index) {
+        long start = (long) index * blockSize;
+        return (int) Math.min(blockSize, manifest.getSize() - start);
+    }
+
+    private static void report(LongConsumer progress, long bytes) {
+        if (progress != null) {
+            progress.accept(bytes);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = in.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * rsync weak checksum over a fixed-size window.
+     */
+    static final class RollingChecksum {
+        private final int length;
+        private int a;
+        private int b;
+
+        RollingChecksum(byte[] window) {
+            this.length = window.length;
+            for (int i = 0; i < length; i++) {
+                int x = window[i] & 0xff;
+                a += x;
+                b += (length - i) * x;
+            }
+            a &= 0xffff;
+            b &= 0xffff;
+        }
+
+        void roll(byte out, byte in) {
+            int x = out & 0xff;
+            a = (a - x + (in & 0xff)) & 0xffff;
+            b = (b - length * x + a) & 0xffff;
+        }
+
+        long value() {
+            return ((long) b << 16) | a;
+        }
+    }
+}
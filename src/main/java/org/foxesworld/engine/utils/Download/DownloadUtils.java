@@ -1,76 +1,638 @@
 package org.foxesworld.engine.utils.Download;
 
 import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.fileLoader.ChunkManifest;
+import org.foxesworld.engine.fileLoader.DownloadProgress;
+import org.foxesworld.engine.fileLoader.FileAttributes;
 import org.foxesworld.engine.fileLoader.FileLoader;
+import org.foxesworld.engine.fileLoader.FileStateIndex;
+import org.foxesworld.engine.fileLoader.IDownloadUtils;
 import org.foxesworld.engine.gui.components.button.Button;
+import org.foxesworld.engine.metrics.DownloadEvent;
+import org.foxesworld.engine.metrics.MetricsRegistry;
 import org.foxesworld.engine.utils.HTTP.HTTPrequest;
+import org.foxesworld.engine.utils.HTTP.HttpTransport;
+import org.foxesworld.engine.utils.HashService;
 
 import javax.swing.*;
+import java.awt.Component;
 import java.io.*;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.util.Enumeration;
-import java.util.LinkedList;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @SuppressWarnings("unused")
-public class DownloadUtils extends HTTPrequest {
+public class DownloadUtils extends HTTPrequest implements IDownloadUtils {
+    public static final String PART_SUFFIX = ".part";
+    private static final String VALIDATOR_SUFFIX = ".validator";
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long DELTA_MIN_SIZE = 8L * 1024 * 1024;
+    private static final long DELTA_MANIFEST_TIMEOUT = 30;
+    private static final long SPLIT_MIN_SIZE = 32L * 1024 * 1024;
     private final Engine engine;
+    private final HttpTransport transport = HttpTransport.getInstance();
+    private final MirrorSelector mirrorSelector;
+    private final BandwidthLimiter bandwidthLimiter = BandwidthLimiter.getInstance();
     private JLabel progressLabel;
     private JProgressBar progressBar;
     private Button cancelButton;
-    private int percent;
-    private long downloaded = 0;
-    private long totalSize;
+    private final DownloadProgress progress = new DownloadProgress();
+    private FileStateIndex fileStateIndex;
+    private Function<String, CompletableFuture<ChunkManifest>> chunkSource;
+
+    public DownloadUtils(Engine engine) {
+        super(engine, "GET");
+        this.engine = engine;
+        this.mirrorSelector = MirrorSelector.fromEngineData(engine.getEngineData());
+        this.bandwidthLimiter.configure(engine.getEngineData().getDownloadManager());
+        this.progress.addListener(this::showProgress);
+    }
+
     public DownloadUtils(FileLoader fileLoader) {
-        super(fileLoader.getEngine(), "GET");
-        this.engine = fileLoader.getEngine();
+        this(fileLoader.getEngine());
+    }
+
+    /**
+     * Downloads a file and checks it against the manifest hash before it is committed.
+     * <p>
+     * When an outdated copy of a large file is already on disk and a chunk source is set, only the
+     * changed blocks are downloaded and the file is rebuilt locally. Any failure of the delta path
+     * falls back to a full download.
+     * </p>
+     *
+     * @param attribute the manifest entry to download
+     * @param savePath  the final location of the file
+     */
+    public void downloader(FileAttributes attribute, String savePath) {
+        if (chunkSource != null && attribute.getSize() >= DELTA_MIN_SIZE && new File(savePath).isFile()
+                && deltaDownloader(attribute, savePath)) {
+            return;
+        }
+        downloader(attribute.getFilename(), savePath, attribute.getHash(), attribute.getSize());
+    }
+
+    /**
+     * Updates an existing local file by downloading only the blocks that changed.
+     *
+     * @return {@code true} if the file was rebuilt and verified, {@code false} if a full download is needed
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private boolean deltaDownloader(FileAttributes attribute, String savePath) {
+        File local = new File(savePath);
+        File partFile = new File(savePath + PART_SUFFIX);
+        File validatorFile = new File(savePath + PART_SUFFIX + VALIDATOR_SUFFIX);
+        long counted = 0;
+        try {
+            ChunkManifest manifest = chunkSource.apply(attribute.getFilename()).get(DELTA_MANIFEST_TIMEOUT, TimeUnit.SECONDS);
+            if (manifest == null || !manifest.matches(attribute)) {
+                return false;
+            }
+            DeltaPatcher patcher = new DeltaPatcher(manifest);
+            Map<Integer, Long> localBlocks = patcher.findLocalBlocks(local);
+            long reused = patcher.reusedBytes(localBlocks);
+            Engine.LOGGER.debug("Delta update of {}: reusing {} of {} bytes", attribute.getFilename(), reused, attribute.getSize());
+
+            long[] written = new long[1];
+            String hash = patcher.rebuild(local, localBlocks, partFile,
+                    (from, to) -> openRange(attribute.getFilename(), from, to),
+                    bytes -> {
+                        written[0] += bytes;
+                        addProgress(bytes);
+                    });
+            counted = written[0];
+            if (!hash.equalsIgnoreCase(attribute.getHash())) {
+                throw new IOException("Hash mismatch after delta update of " + attribute.getFilename());
+            }
+            commitPart(partFile, local);
+            validatorFile.delete();
+            if (fileStateIndex != null) {
+                fileStateIndex.record(local.toPath(), attribute.getHash());
+            }
+            return true;
+        } catch (Exception e) {
+            Engine.LOGGER.warn("Delta update of {} failed, downloading the whole file: {}", attribute.getFilename(), e.getMessage());
+            discardPart(partFile, validatorFile);
+            progress.add(-counted);
+            return false;
+        }
+    }
+
+    private InputStream openRange(String downloadFile, long from, long to) throws IOException {
+        IOException failure = null;
+        for (MirrorSelector.Mirror mirror : mirrorSelector.ranked(to - from + 1)) {
+            try {
+                HttpRequest request = newFileRequest(mirror, downloadFile)
+                        .header("Range", "bytes=" + from + "-" + to)
+                        .build();
+                HttpResponse<InputStream> response = transport.open(request);
+                if (response.statusCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    response.body().close();
+                    throw new IOException("Server does not support byte ranges for " + downloadFile);
+                }
+                return bandwidthLimiter.wrap(response.body(), BandwidthLimiter.FileClass.of(downloadFile));
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                mirror.recordFailure(e);
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    private HttpRequest.Builder newFileRequest(MirrorSelector.Mirror mirror, String downloadFile) {
+        return transport.newRequest(URI.create(mirror.getBaseUrl() + downloadFile),
+                engine.getEngineData().getHttPconf().getRequestProperties()).GET();
     }
 
-    @SuppressWarnings({"unused", "ResultOfMethodCallIgnored"})
     public void downloader(String downloadFile, String savePath) {
-        this.progressBar.add(this.progressLabel);
-        this.progressBar.add(cancelButton);
+        downloader(downloadFile, savePath, null);
+    }
+
+    /**
+     * Downloads {@code downloadFile} into {@code savePath}.
+     * <p>
+     * Bytes are written to {@code savePath + ".part"}. If a previous attempt left a partial file,
+     * the transfer continues from its length using a {@code Range} request guarded by
+     * {@code If-Range}, so a changed file on the server restarts from zero instead of being spliced.
+     * </p>
+     * <p>
+     * The MD5 digest is computed while the bytes arrive from the socket. A file whose digest
+     * does not match {@code expectedHash} is discarded and fetched again, up to
+     * {@value #MAX_ATTEMPTS} attempts. Only a verified part file is moved over {@code savePath},
+     * and it is recorded in the {@link FileStateIndex} so the next launch does not read it again.
+     * </p>
+     *
+     * @param downloadFile the file path relative to the bind URL
+     * @param savePath     the final location of the file
+     * @param expectedHash the expected MD5 hash, or {@code null} to skip verification
+     */
+    public void downloader(String downloadFile, String savePath, String expectedHash) {
+        downloader(downloadFile, savePath, expectedHash, -1);
+    }
 
-        File parentDir = new File(savePath).getParentFile();
+    /**
+     * Downloads {@code downloadFile} of a known size. Files of at least {@value #SPLIT_MIN_SIZE} bytes are
+     * fetched from the two fastest mirrors at once when they are known, each serving a part proportional
+     * to its throughput.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void downloader(String downloadFile, String savePath, String expectedHash, long size) {
+        File target = new File(savePath);
+        File parentDir = target.getParentFile();
         if (!parentDir.isDirectory()) {
             parentDir.mkdirs();
         }
+        File partFile = new File(savePath + PART_SUFFIX);
+        File validatorFile = new File(savePath + PART_SUFFIX + VALIDATOR_SUFFIX);
 
+        DownloadEvent event = new DownloadEvent();
+        long started = System.nanoTime();
+        event.begin();
+        Transfer transfer = null;
+        int attempt = 1;
+        boolean split = false;
+        Throwable failure = null;
         try {
-            //TODO use our HTTP class (Partly done)
-            URL url = new URL(engine.getEngineData().getBindUrl() + downloadFile);
-            HttpURLConnection httpConnection = (HttpURLConnection) url.openConnection();
-            httpConnection.setDoOutput(false);
-            httpConnection.setRequestMethod("GET");
-            this.setRequestProperties(httpConnection, engine.getEngineData().getHttPconf().getRequestProperties());
-            long fileSize = httpConnection.getContentLength();
-            long chunkSize = fileSize / 100;
-
-            FileOutputStream fileOutputStream = new FileOutputStream(savePath);
-            byte[] buffer = new byte[65536];
-
-            try (InputStream in = new BufferedInputStream(httpConnection.getInputStream())) {
-                int read;
-                while ((read = in.read(buffer, 0, buffer.length)) != -1) {
-                    fileOutputStream.write(buffer, 0, read);
-                    downloaded += read;
-                    percent = (int) (downloaded * 100 / totalSize);
-                    SwingUtilities.invokeLater(() -> {
-                        progressBar.setValue(percent);
-                        progressLabel.setText(formatFileSize((int) downloaded) + " / " + formatFileSize(totalSize));
-                    });
+            for (; ; attempt++) {
+                transfer = size >= SPLIT_MIN_SIZE && !partFile.isFile()
+                        ? splitTransfer(downloadFile, partFile, validatorFile, size)
+                        : null;
+                split = transfer != null;
+                if (transfer == null) {
+                    transfer = transfer(downloadFile, partFile, validatorFile, size);
+                }
+                if (expectedHash == null || expectedHash.equalsIgnoreCase(transfer.hash())) {
+                    break;
+                }
+                if (transfer.mirror() != null) {
+                    // A mirror serving corrupt data is avoided like a failing one
+                    transfer.mirror().recordFailure(new IOException("hash mismatch for " + downloadFile));
+                }
+                discardPart(partFile, validatorFile);
+                progress.add(-transfer.countedBytes());
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new IOException("Hash mismatch for " + downloadFile + " after " + attempt + " attempts");
                 }
+                Engine.LOGGER.warn("Hash mismatch for {} (attempt {}/{}), retrying", downloadFile, attempt, MAX_ATTEMPTS);
+            }
+            commitPart(partFile, target);
+            validatorFile.delete();
+            if (expectedHash != null && fileStateIndex != null) {
+                fileStateIndex.record(target.toPath(), expectedHash);
             }
-            fileOutputStream.close();
-            httpConnection.disconnect();
-
         } catch (IOException e) {
+            failure = e;
             throw new RuntimeException(e);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            recordDownload(event, started, downloadFile, size, transfer, attempt, split, failure);
+        }
+    }
+
+    private static void recordDownload(DownloadEvent event, long started, String downloadFile, long size,
+                                       Transfer transfer, int attempts, boolean split, Throwable failure) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.recordSince("download.nanos", started);
+        metrics.increment(failure == null ? "download.files" : "download.failures");
+        if (attempts > 1) {
+            metrics.counter("download.retries").add(attempts - 1);
+        }
+        if (transfer != null) {
+            metrics.counter("download.bytes").add(transfer.countedBytes());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = downloadFile;
+            event.size = size;
+            event.attempts = attempts;
+            event.split = split;
+            if (transfer != null) {
+                event.transferred = transfer.countedBytes();
+                event.mirror = transfer.mirror() != null ? transfer.mirror().getBaseUrl() : null;
+            }
+            event.failure = failure == null ? null : failure.toString();
+            event.commit();
+        }
+    }
+
+    /**
+     * Transfers the remote file from the best mirror, moving on to the next one when a mirror fails.
+     * A part file left by a failed mirror is resumed from the next one when the validators allow it.
+     */
+    private Transfer transfer(String downloadFile, File partFile, File validatorFile, long size) throws IOException {
+        IOException failure = null;
+        for (MirrorSelector.Mirror mirror : mirrorSelector.ranked(size > 0 ? size : 0)) {
+            try {
+                return transfer(mirror, downloadFile, partFile, validatorFile);
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                mirror.recordFailure(e);
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Transfers the remote file into the part file, resuming when possible, and digests every byte
+     * of the resulting part file.
+     */
+    private Transfer transfer(MirrorSelector.Mirror mirror, String downloadFile, File partFile, File validatorFile) throws IOException {
+        Transfer transfer = attemptTransfer(mirror, downloadFile, partFile, validatorFile);
+        if (transfer == null) {
+            Engine.LOGGER.warn("{} answered the resume of {} with another range, downloading from the start", mirror, downloadFile);
+            discardPart(partFile, validatorFile);
+            // Without a part file there is no Range header, so this attempt cannot be rejected again
+            transfer = attemptTransfer(mirror, downloadFile, partFile, validatorFile);
+        }
+        return transfer;
+    }
+
+    /**
+     * One request for the part file.
+     *
+     * @return the transfer, or {@code null} if a resumed response does not start at the end of the part file
+     */
+    private Transfer attemptTransfer(MirrorSelector.Mirror mirror, String downloadFile, File partFile, File validatorFile) throws IOException {
+        long offset = partFile.isFile() ? partFile.length() : 0;
+        String validator = offset > 0 ? readValidator(validatorFile) : null;
+        if (offset > 0 && validator == null) {
+            // Without a validator the server cannot tell us whether the part still belongs to the same file
+            offset = 0;
+        }
+        MessageDigest digest = HashService.Algorithm.MD5.newDigest();
+
+        HttpRequest.Builder builder = newFileRequest(mirror, downloadFile);
+        if (offset > 0) {
+            builder.header("Range", "bytes=" + offset + "-");
+            builder.header("If-Range", validator);
+        }
+        long started = System.nanoTime();
+        try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+            PartFileHandler handler = new PartFileHandler(downloadFile, partFile, file, offset, validatorFile, digest);
+            try {
+                HttpResponse<Long> response = transport.receive(builder.build(), handler);
+                handler.rethrow();
+                if (handler.rangeMismatch) {
+                    return null;
+                }
+                if (response.statusCode() == HTTP_RANGE_NOT_SATISFIABLE && offset > 0) {
+                    // The part file already holds every byte, only verification is left
+                    digestFile(digest, partFile);
+                    addProgress(offset);
+                    mirror.recordSuccess(handler.headersReceived - started, 0, 0);
+                    return new Transfer(HashService.toHex(digest.digest()), offset, mirror);
+                }
+                if (handler.subscriber == null) {
+                    throw new IOException("Unexpected HTTP " + response.statusCode() + " for " + downloadFile);
+                }
+                long counted = response.body();
+                mirror.recordSuccess(handler.headersReceived - started, counted - handler.offset,
+                        System.nanoTime() - handler.headersReceived);
+                return new Transfer(HashService.toHex(digest.digest()), counted, mirror);
+            } catch (IOException e) {
+                // The next mirror counts the kept bytes again
+                progress.add(-handler.counted());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Downloads a file as two byte ranges from the two fastest mirrors in parallel.
+     *
+     * @return the transfer, or {@code null} if fewer than two measured mirrors are available or either
+     *         range failed; the part file is removed in that case
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private Transfer splitTransfer(String downloadFile, File partFile, File validatorFile, long size) {
+        List<MirrorSelector.Mirror> fastest = mirrorSelector.fastest(2);
+        if (fastest.size() < 2) {
+            return null;
+        }
+        MirrorSelector.Mirror first = fastest.get(0);
+        MirrorSelector.Mirror second = fastest.get(1);
+        double share = first.getThroughput() / (first.getThroughput() + second.getThroughput());
+        long split = Math.max(1, Math.min(size - 1, (long) (size * share)));
+        Engine.LOGGER.debug("Splitting {} between {} ({} bytes) and {} ({} bytes)", downloadFile, first, split, second, size - split);
+
+        AtomicLong counted = new AtomicLong();
+        AtomicBoolean aborted = new AtomicBoolean();
+        CompletableFuture<Void> secondRange = CompletableFuture.completedFuture(null);
+        // Ranges leave holes in the part file until both are done, so a split part is never resumed:
+        // without a validator the next attempt starts over from the first byte
+        validatorFile.delete();
+        try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+            FileChannel channel = file.getChannel();
+            try {
+                secondRange = CompletableFuture.runAsync(() -> {
+                    try {
+                        fetchRange(second, downloadFile, split, size - 1, channel, counted, aborted);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, transport.getExecutor());
+                fetchRange(first, downloadFile, 0, split - 1, channel, counted, aborted);
+                secondRange.join();
+            } catch (IOException | CompletionException e) {
+                // Stop the other range while the channel is still open, otherwise it fails on the
+                // closed channel before it sees the abort and blames a healthy mirror
+                aborted.set(true);
+                secondRange.exceptionally(ignored -> null).join();
+                throw e;
+            }
+        } catch (IOException | CompletionException e) {
+            Engine.LOGGER.warn("Split download of {} failed, downloading from one mirror: {}", downloadFile, e.getMessage());
+            progress.add(-counted.get());
+            partFile.delete();
+            return null;
+        }
+        try {
+            MessageDigest digest = HashService.Algorithm.MD5.newDigest();
+            digestFile(digest, partFile);
+            return new Transfer(HashService.toHex(digest.digest()), counted.get(), null);
+        } catch (IOException e) {
+            progress.add(-counted.get());
+            partFile.delete();
+            return null;
+        }
+    }
+
+    private void fetchRange(MirrorSelector.Mirror mirror, String downloadFile, long from, long to, FileChannel channel,
+                            AtomicLong counted, AtomicBoolean aborted) throws IOException {
+        HttpRequest request = newFileRequest(mirror, downloadFile)
+                .header("Range", "bytes=" + from + "-" + to)
+                .build();
+        long started = System.nanoTime();
+        long[] headersReceived = new long[1];
+        try {
+            HttpResponse<Long> response = transport.receive(request, info -> {
+                headersReceived[0] = System.nanoTime();
+                if (info.statusCode() != HttpURLConnection.HTTP_PARTIAL || contentRangeStart(info.headers()) != from) {
+                    return HttpResponse.BodySubscribers.replacing(from);
+                }
+                return new FileBodySubscriber(channel, from, to + 1, null, read -> {
+                    counted.addAndGet(read);
+                    addProgress(read);
+                }, BandwidthLimiter.FileClass.of(downloadFile), aborted::get);
+            });
+            if (response.statusCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Mirror " + mirror + " does not support byte ranges for " + downloadFile);
+            }
+            if (contentRangeStart(response.headers()) != from) {
+                throw new IOException("Mirror " + mirror + " answered range " + from + "-" + to + " of " + downloadFile
+                        + " with " + response.headers().firstValue("Content-Range").orElse("no Content-Range"));
+            }
+            long position = response.body();
+            if (position <= to) {
+                throw new EOFException("Range " + from + "-" + to + " of " + downloadFile + " ended at " + position);
+            }
+            mirror.recordSuccess(headersReceived[0] - started, to - from + 1, System.nanoTime() - headersReceived[0]);
+        } catch (IOException e) {
+            if (!aborted.get()) {
+                mirror.recordFailure(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the first byte of a {@code Content-Range: bytes <first>-<last>/<length>} header,
+     * or {@code -1} if the header is missing or malformed.
+     */
+    private static long contentRangeStart(HttpHeaders headers) {
+        String value = headers.firstValue("Content-Range").orElse(null);
+        if (value == null || !value.regionMatches(true, 0, "bytes ", 0, 6)) {
+            return -1;
+        }
+        int dash = value.indexOf('-', 6);
+        if (dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.substring(6, dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void digestFile(MessageDigest digest, File file) throws IOException {
+        byte[] buffer = new byte[65536];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Chooses how the response body of a single-mirror transfer is written into the part file once the
+     * status and headers are known. Failures while preparing the file are kept and rethrown by the caller,
+     * the body is then discarded.
+     */
+    private final class PartFileHandler implements HttpResponse.BodyHandler<Long> {
+        private final String downloadFile;
+        private final File partFile;
+        private final RandomAccessFile file;
+        private final File validatorFile;
+        private final MessageDigest digest;
+        private long offset;
+        private long headersReceived;
+        private FileBodySubscriber subscriber;
+        private IOException failure;
+        private boolean rangeMismatch;
+
+        private PartFileHandler(String downloadFile, File partFile, RandomAccessFile file, long offset,
+                                File validatorFile, MessageDigest digest) {
+            this.downloadFile = downloadFile;
+            this.partFile = partFile;
+            this.file = file;
+            this.offset = offset;
+            this.validatorFile = validatorFile;
+            this.digest = digest;
+        }
+
+        @Override
+        public HttpResponse.BodySubscriber<Long> apply(HttpResponse.ResponseInfo info) {
+            headersReceived = System.nanoTime();
+            int responseCode = info.statusCode();
+            boolean append = responseCode == HttpURLConnection.HTTP_PARTIAL && offset > 0;
+            if (!append && responseCode != HttpURLConnection.HTTP_OK) {
+                return HttpResponse.BodySubscribers.replacing(offset);
+            }
+            if (append && contentRangeStart(info.headers()) != offset) {
+                // Appending bytes of another position would corrupt the part file
+                rangeMismatch = true;
+                return HttpResponse.BodySubscribers.replacing(offset);
+            }
+            try {
+                if (append) {
+                    Engine.LOGGER.debug("Resuming {} from byte {}", downloadFile, offset);
+                    // Only the bytes kept from the previous attempt are read back from disk
+                    digestFile(digest, partFile);
+                } else {
+                    offset = 0;
+                    file.setLength(0);
+                }
+                // The part file is not preallocated: its length is the resume offset of the next attempt
+                writeValidator(validatorFile, info.headers());
+            } catch (IOException e) {
+                failure = e;
+                return HttpResponse.BodySubscribers.replacing(offset);
+            }
+            addProgress(offset);
+            subscriber = new FileBodySubscriber(file.getChannel(), offset, -1, digest, DownloadUtils.this::addProgress,
+                    BandwidthLimiter.FileClass.of(downloadFile), () -> false);
+            return subscriber;
+        }
+
+        private void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * Bytes this attempt added to the progress counter.
+         */
+        private long counted() {
+            return subscriber != null ? subscriber.getPosition() : 0;
+        }
+    }
+
+    /**
+     * Outcome of a single transfer attempt.
+     *
+     * @param hash         MD5 of the whole part file
+     * @param countedBytes bytes added to the progress counter by this attempt
+     * @param mirror       the mirror that served the file, {@code null} for a split download
+     */
+    private record Transfer(String hash, long countedBytes, MirrorSelector.Mirror mirror) {
+    }
+
+    private void addProgress(long bytes) {
+        progress.add(bytes);
+    }
+
+    // Runs on the EDT at most every DownloadProgress.PUBLISH_INTERVAL_MS
+    private void showProgress(DownloadProgress progress) {
+        if (progressBar == null || progressLabel == null) {
+            return;
+        }
+        progressBar.setValue(progress.getPercent());
+        StringBuilder text = new StringBuilder()
+                .append(formatFileSize(progress.getDownloaded())).append(" / ").append(formatFileSize(progress.getTotalSize()));
+        if (progress.getThroughput() > 0) {
+            text.append(", ").append(formatFileSize((long) progress.getThroughput())).append("/s");
+            long eta = progress.getEtaSeconds();
+            if (eta > 0) {
+                text.append(", ").append(eta / 60).append(':').append(eta % 60 < 10 ? "0" : "").append(eta % 60);
+            }
+        }
+        progressLabel.setText(text.toString());
+    }
+
+    private String readValidator(File validatorFile) {
+        if (!validatorFile.isFile()) {
+            return null;
+        }
+        try {
+            String validator = Files.readString(validatorFile.toPath(), StandardCharsets.UTF_8).trim();
+            return validator.isEmpty() ? null : validator;
+        } catch (IOException e) {
+            return null;
         }
     }
+
+    // If-Range accepts either a strong ETag or a Last-Modified date
+    private void writeValidator(File validatorFile, HttpHeaders headers) throws IOException {
+        String validator = headers.firstValue("ETag").orElse(null);
+        if (validator == null || validator.startsWith("W/")) {
+            validator = headers.firstValue("Last-Modified").orElse(null);
+        }
+        if (validator != null) {
+            Files.writeString(validatorFile.toPath(), validator, StandardCharsets.UTF_8);
+        } else {
+            Files.deleteIfExists(validatorFile.toPath());
+        }
+    }
+
+    private void commitPart(File partFile, File target) throws IOException {
+        try {
+            Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void discardPart(File partFile, File validatorFile) {
+        partFile.delete();
+        validatorFile.delete();
+    }
+
     private String formatFileSize(long sizeInBytes) {
         if (sizeInBytes < 1024) {
             return sizeInBytes + " bytes";
@@ -85,53 +647,109 @@ public class DownloadUtils extends HTTPrequest {
             return String.format("%.2f GB", sizeInGb);
         }
     }
+    /**
+     * Extracts a downloaded archive into {@code dir_to} in parallel and deletes the archive.
+     *
+     * @see ZipExtractor#extract(java.nio.file.Path, java.nio.file.Path)
+     */
     @SuppressWarnings({"unused", "ResultOfMethodCallIgnored"})
     public void unpack(String path, File dir_to) {
         File fileZip = new File(path);
-        try (ZipFile zip = new ZipFile(path, StandardCharsets.UTF_8)) {
-            Enumeration<? extends ZipEntry> entries = zip.entries();
-            LinkedList<ZipEntry> zfiles = new LinkedList<>();
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                if (entry.isDirectory()) {
-                    new File(dir_to + File.separator + entry.getName()).mkdirs();
-                } else {
-                    zfiles.add(entry);
-                }
-            }
-            for (ZipEntry entry : zfiles) {
-                File outFile = new File(dir_to, entry.getName());
-                try (InputStream in = zip.getInputStream(entry);
-                     OutputStream out = new FileOutputStream(outFile)) {
-                    if (!outFile.getParentFile().exists()) {
-                        outFile.getParentFile().mkdirs();
-                    }
-                    byte[] buffer = new byte[1024];
-                    int len;
-                    while ((len = in.read(buffer)) >= 0) {
-                        out.write(buffer, 0, len);
-                    }
-                }
-            }
+        try {
+            ZipExtractor.extract(fileZip.toPath(), dir_to.toPath());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
         fileZip.delete();
     }
 
+    /**
+     * Downloads an archive and extracts it while it arrives, without writing the archive to disk.
+     * Mirrors are tried in order until one delivers the whole archive; entries extracted from a
+     * failed attempt are overwritten by the next one.
+     *
+     * @param downloadFile the archive path relative to the bind URL
+     * @param dirTo        the directory to extract into
+     * @throws IOException if no mirror delivers a valid archive
+     */
+    public void downloadAndUnpack(String downloadFile, File dirTo) throws IOException {
+        IOException failure = null;
+        for (MirrorSelector.Mirror mirror : mirrorSelector.ranked(0)) {
+            long started = System.nanoTime();
+            try {
+                HttpResponse<InputStream> response = transport.open(newFileRequest(mirror, downloadFile).build());
+                long headersReceived = System.nanoTime();
+                try (InputStream body = bandwidthLimiter.wrap(response.body(), BandwidthLimiter.FileClass.of(downloadFile))) {
+                    if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                        throw new IOException("Unexpected HTTP " + response.statusCode() + " for " + downloadFile);
+                    }
+                    ZipExtractor.extract(body, dirTo.toPath());
+                }
+                mirror.recordSuccess(headersReceived - started, 0, 0);
+                return;
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                mirror.recordFailure(e);
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    @Override
     public void setTotalSize(long totalSize) {
-        this.totalSize = totalSize;
+        progress.reset(totalSize);
+    }
+
+    @Override
+    public DownloadProgress getProgress() {
+        return progress;
+    }
+
+    @Override
+    public void setChunkSource(Function<String, CompletableFuture<ChunkManifest>> chunkSource) {
+        this.chunkSource = chunkSource;
+    }
+
+    @Override
+    public void setFileStateIndex(FileStateIndex fileStateIndex) {
+        this.fileStateIndex = fileStateIndex;
+    }
+
+    /**
+     * Returns the limiter shared by all downloads, e.g. to change the limit from the settings screen.
+     */
+    public BandwidthLimiter getBandwidthLimiter() {
+        return bandwidthLimiter;
     }
 
     public void setProgressLabel(JLabel progressLabel) {
         this.progressLabel = progressLabel;
+        attachToProgressBar(progressLabel);
     }
 
     public void setProgressBar(JProgressBar progressBar) {
         this.progressBar = progressBar;
+        attachToProgressBar(progressLabel);
+        attachToProgressBar(cancelButton);
     }
 
     public void setCancelButton(Button cancelButton) {
         this.cancelButton = cancelButton;
+        attachToProgressBar(cancelButton);
+    }
+
+    // The label and the cancel button live inside the progress bar; they are added once, on the EDT
+    private void attachToProgressBar(Component component) {
+        JProgressBar bar = progressBar;
+        if (bar == null || component == null) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (component.getParent() != bar) {
+                bar.add(component);
+            }
+        });
     }
 }
\ No newline at end of file
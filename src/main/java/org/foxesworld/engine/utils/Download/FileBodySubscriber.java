@@ -0,0 +1,131 @@
+package org.foxesworld.engine.utils.Download;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes a response body straight from the buffers of the HTTP client into a {@link FileChannel}.
+ * <p>
+ * Each received buffer is digested and written at its position in the file without being
+ * copied into an intermediate array. The body completes with the file position after the last byte.
+ * </p>
+ * <p>
+ * Bandwidth is limited by pacing demand: when the {@link BandwidthLimiter} bucket is in debt, the next
+ * buffer is requested only after the pause has passed, so the thread of the HTTP client that delivered
+ * the buffer is never put to sleep.
+ * </p>
+ */
+class FileBodySubscriber implements HttpResponse.BodySubscriber<Long> {
+
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private final FileChannel channel;
+    private final long limit;
+    private final MessageDigest digest;
+    private final LongConsumer progress;
+    private final BandwidthLimiter limiter;
+    private final BandwidthLimiter.FileClass fileClass;
+    private final BooleanSupplier cancelled;
+    private Flow.Subscription subscription;
+    private volatile long position;
+
+    /**
+     * @param channel   the file to write to
+     * @param position  file position of the first body byte
+     * @param limit     file position the body must not go beyond, {@code -1} for none
+     * @param digest    digest updated with every byte, may be {@code null}
+     * @param progress  receives the number of bytes written
+     * @param fileClass class of the file for bandwidth sharing
+     * @param cancelled checked before every buffer, stops the transfer when it returns {@code true}
+     */
+    FileBodySubscriber(FileChannel channel, long position, long limit, MessageDigest digest, LongConsumer progress,
+                       BandwidthLimiter.FileClass fileClass, BooleanSupplier cancelled) {
+        this.channel = channel;
+        this.position = position;
+        this.limit = limit;
+        this.digest = digest;
+        this.progress = progress;
+        this.limiter = BandwidthLimiter.getInstance();
+        this.fileClass = fileClass;
+        this.cancelled = cancelled;
+        limiter.open(fileClass);
+        result.whenComplete((ignored, e) -> limiter.close(fileClass));
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        try {
+            long pauseNanos = 0;
+            for (ByteBuffer buffer : buffers) {
+                if (cancelled.getAsBoolean()) {
+                    throw new IOException("Transfer cancelled");
+                }
+                int length = buffer.remaining();
+                if (limit >= 0 && position + length > limit) {
+                    throw new IOException("Response is longer than the requested range");
+                }
+                pauseNanos = limiter.take(fileClass, length);
+                if (digest != null) {
+                    digest.update(buffer.duplicate());
+                }
+                long written = position;
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, written);
+                }
+                position = written;
+                progress.accept(length);
+            }
+            if (pauseNanos > 0) {
+                CompletableFuture.delayedExecutor(pauseNanos, TimeUnit.NANOSECONDS).execute(this::requestNext);
+            } else {
+                subscription.request(1);
+            }
+        } catch (IOException e) {
+            subscription.cancel();
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void requestNext() {
+        if (!result.isDone()) {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(position);
+    }
+
+    @Override
+    public CompletionStage<Long> getBody() {
+        return result;
+    }
+
+    /**
+     * Returns the position after the last byte written so far.
+     */
+    long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,190 @@
+package org.foxesworld.engine.utils.Download;
+
+import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.EngineData;
+
+import java.util.*;
+
+/**
+ * Chooses the download mirror for each transfer from live measurements.
+ * <p>
+ * Every finished transfer updates the exponentially weighted moving averages of the mirror's
+ * time to first byte and throughput. Mirrors are ranked by the expected time of a transfer,
+ * {@code latency + size / throughput}, so latency decides for small files and throughput for large ones.
+ * A mirror without measurements ranks first so it gets measured. The origin (the bind URL) is only
+ * a fallback: it ranks after every mirror and is tried first only while all mirrors are backing off.
+ * A failing mirror is put aside for a period that doubles with every consecutive failure, up to
+ * {@link #MAX_BACKOFF_MS}, and is tried again afterwards.
+ * </p>
+ */
+public class MirrorSelector {
+
+    // Weight of the newest sample in the moving averages
+    private static final double ALPHA = 0.3;
+    private static final long BASE_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private final List<Mirror> mirrors;
+
+    /**
+     * @param mirrorUrls base URLs of the mirrors
+     * @param originUrl  base URL of the origin, may be {@code null}
+     */
+    public MirrorSelector(List<String> mirrorUrls, String originUrl) {
+        boolean hasOrigin = originUrl != null && !originUrl.isEmpty();
+        List<Mirror> list = new ArrayList<>();
+        for (String url : new LinkedHashSet<>(mirrorUrls)) {
+            if (url != null && !url.isEmpty() && !(hasOrigin && url.equals(originUrl))) {
+                list.add(new Mirror(url, false));
+            }
+        }
+        if (hasOrigin) {
+            list.add(new Mirror(originUrl, true));
+        }
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("No download mirrors configured");
+        }
+        this.mirrors = List.copyOf(list);
+    }
+
+    /**
+     * Creates a selector for the bind URL and the mirrors listed in {@code downloadManager.mirrors}.
+     */
+    public static MirrorSelector fromEngineData(EngineData engineData) {
+        List<String> urls = new ArrayList<>();
+        EngineData.DownloadManager downloadManager = engineData.getDownloadManager();
+        if (downloadManager != null && downloadManager.getMirrors() != null) {
+            urls.addAll(downloadManager.getMirrors());
+        }
+        return new MirrorSelector(urls, engineData.getBindUrl());
+    }
+
+    /**
+     * Returns the mirrors in the order they should be tried for a transfer of {@code size} bytes.
+     * Mirrors that are backing off come after the available ones. The origin comes last unless
+     * every mirror is backing off.
+     */
+    public List<Mirror> ranked(long size) {
+        long now = System.currentTimeMillis();
+        boolean mirrorAvailable = false;
+        for (Mirror mirror : mirrors) {
+            if (!mirror.isOrigin() && !mirror.isBackingOff(now)) {
+                mirrorAvailable = true;
+                break;
+            }
+        }
+        // Scores are taken once, live statistics change while sorting
+        Map<Mirror, Double> scores = new HashMap<>();
+        for (Mirror mirror : mirrors) {
+            double score;
+            if (mirror.isOrigin()) {
+                score = mirrorAvailable || mirror.isBackingOff(now) ? Double.POSITIVE_INFINITY : 0;
+            } else {
+                score = mirror.isBackingOff(now) ? Double.MAX_VALUE : mirror.expectedMillis(size);
+            }
+            scores.put(mirror, score);
+        }
+        List<Mirror> ranked = new ArrayList<>(mirrors);
+        ranked.sort(Comparator.comparingDouble(scores::get));
+        return ranked;
+    }
+
+    /**
+     * Returns up to {@code count} available mirrors with measured throughput, fastest first.
+     */
+    public List<Mirror> fastest(int count) {
+        long now = System.currentTimeMillis();
+        Map<Mirror, Double> throughput = new HashMap<>();
+        for (Mirror mirror : mirrors) {
+            if (!mirror.isBackingOff(now) && mirror.getThroughput() > 0) {
+                throughput.put(mirror, mirror.getThroughput());
+            }
+        }
+        return throughput.keySet().stream()
+                .sorted(Comparator.comparingDouble((Mirror mirror) -> throughput.get(mirror)).reversed())
+                .limit(count)
+                .toList();
+    }
+
+    public List<Mirror> getMirrors() {
+        return mirrors;
+    }
+
+    /**
+     * A download base URL with its transfer statistics.
+     */
+    public static final class Mirror {
+        private final String baseUrl;
+        private final boolean origin;
+        private double latencyMs;
+        private double throughput;
+        private int failures;
+        private long backoffUntil;
+
+        private Mirror(String baseUrl, boolean origin) {
+            this.baseUrl = baseUrl;
+            this.origin = origin;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        /**
+         * Returns {@code true} for the bind URL, which is used only when no mirror is available.
+         */
+        public boolean isOrigin() {
+            return origin;
+        }
+
+        /**
+         * Records a finished transfer.
+         *
+         * @param latencyNanos time until the response headers arrived
+         * @param bytes        body bytes received
+         * @param bodyNanos    time spent receiving the body
+         */
+        public synchronized void recordSuccess(long latencyNanos, long bytes, long bodyNanos) {
+            double latency = latencyNanos / 1_000_000.0;
+            latencyMs = latencyMs == 0 ? latency : latencyMs + ALPHA * (latency - latencyMs);
+            // Tiny bodies measure the latency rather than the bandwidth
+            if (bytes >= 64 * 1024 && bodyNanos > 0) {
+                double rate = bytes * 1_000_000_000.0 / bodyNanos;
+                throughput = throughput == 0 ? rate : throughput + ALPHA * (rate - throughput);
+            }
+            failures = 0;
+            backoffUntil = 0;
+        }
+
+        public synchronized void recordFailure(Throwable cause) {
+            failures++;
+            long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(failures - 1, 16));
+            backoffUntil = System.currentTimeMillis() + backoff;
+            Engine.LOGGER.warn("Mirror {} failed ({}), skipping it for {} ms", baseUrl, cause.getMessage(), backoff);
+        }
+
+        public synchronized double getThroughput() {
+            return throughput;
+        }
+
+        public synchronized double getLatencyMs() {
+            return latencyMs;
+        }
+
+        synchronized boolean isBackingOff(long now) {
+            return backoffUntil > now;
+        }
+
+        private synchronized double expectedMillis(long size) {
+            if (throughput == 0) {
+                return latencyMs;
+            }
+            return latencyMs + size * 1000.0 / throughput;
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.foxesworld.engine.utils.Download;
+
+import org.foxesworld.engine.Engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extracts ZIP archives such as natives and asset bundles.
+ * <p>
+ * An archive on disk is extracted by several workers at once. Entries are spread over the workers by
+ * size so each gets a similar amount of data, and every worker reads through its own {@link ZipFile},
+ * because inflating through a shared handle serializes on it. An archive that is still being downloaded
+ * can be extracted straight from the response body with {@link #extract(InputStream, Path)}, without a
+ * temporary file.
+ * </p>
+ * <p>
+ * Entry names are resolved inside the target directory; an entry that points outside of it
+ * ("zip slip") fails the extraction. Output files are preallocated when the entry size is known and
+ * written with a 64 KB buffer per worker.
+ * </p>
+ */
+public final class ZipExtractor {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Smaller archives are extracted on the calling thread, a pool costs more than it saves
+    private static final int PARALLEL_MIN_ENTRIES = 16;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger(1);
+
+    private ZipExtractor() {
+    }
+
+    /**
+     * Extracts an archive using one worker per available processor.
+     *
+     * @see #extract(Path, Path, int)
+     */
+    public static void extract(Path archive, Path targetDir) throws IOException {
+        extract(archive, targetDir, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Extracts an archive file into {@code targetDir}.
+     *
+     * @param archive   the archive
+     * @param targetDir the directory to extract into, created if missing
+     * @param threads   the maximum number of workers
+     * @throws IOException if the archive cannot be read, an entry lies outside {@code targetDir}
+     *                     or a file cannot be written
+     */
+    public static void extract(Path archive, Path targetDir, int threads) throws IOException {
+        Path root = prepareRoot(targetDir);
+        List<ZipEntry> files = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(archive.toFile(), StandardCharsets.UTF_8)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                Path target = resolve(root, entry.getName());
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    files.add(entry);
+                }
+            }
+            int workers = Math.max(1, Math.min(threads, files.size() / PARALLEL_MIN_ENTRIES));
+            if (workers == 1) {
+                extractEntries(zip, root, files);
+                return;
+            }
+            extractParallel(archive, root, partition(files, workers));
+        }
+    }
+
+    /**
+     * Extracts an archive while it is being read, e.g. from a response body. The stream is read
+     * to the end of the archive but not closed.
+     *
+     * @param in        the archive data
+     * @param targetDir the directory to extract into, created if missing
+     * @throws IOException if the stream fails, an entry lies outside {@code targetDir} or a file cannot be written
+     */
+    public static void extract(InputStream in, Path targetDir) throws IOException {
+        Path root = prepareRoot(targetDir);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            Path target = resolve(root, entry.getName());
+            if (entry.isDirectory()) {
+                Files.createDirectories(target);
+            } else {
+                write(zip, target, entry.getSize(), buffer);
+            }
+            zip.closeEntry();
+        }
+    }
+
+    private static void extractParallel(Path archive, Path root, List<List<ZipEntry>> parts) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parts.size(), runnable -> {
+            Thread thread = new Thread(runnable, "zip-" + THREAD_NUMBER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (List<ZipEntry> part : parts) {
+                futures.add(executor.submit(() -> {
+                    try (ZipFile zip = new ZipFile(archive.toFile(), StandardCharsets.UTF_8)) {
+                        extractEntries(zip, root, part);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException io ? io : new IOException("Extraction of " + archive + " failed", cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction of " + archive + " was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void extractEntries(ZipFile zip, Path root, List<ZipEntry> entries) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (ZipEntry entry : entries) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Extraction was interrupted");
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                write(in, resolve(root, entry.getName()), entry.getSize(), buffer);
+            }
+        }
+    }
+
+    /**
+     * Spreads the entries over {@code workers} lists with similar total sizes, largest entries first.
+     */
+    private static List<List<ZipEntry>> partition(List<ZipEntry> files, int workers) {
+        List<ZipEntry> bySize = new ArrayList<>(files);
+        bySize.sort(Comparator.comparingLong((ZipEntry entry) -> Math.max(0, entry.getSize())).reversed());
+        List<List<ZipEntry>> parts = new ArrayList<>(workers);
+        long[] totals = new long[workers];
+        for (int i = 0; i < workers; i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (ZipEntry entry : bySize) {
+            int lightest = 0;
+            for (int i = 1; i < workers; i++) {
+                if (totals[i] < totals[lightest]) {
+                    lightest = i;
+                }
+            }
+            parts.get(lightest).add(entry);
+            totals[lightest] += Math.max(1, entry.getSize());
+        }
+        return parts;
+    }
+
+    private static void write(InputStream in, Path target, long size, byte[] buffer) throws IOException {
+        Path parent = target.getParent();
+        if (parent != null && !Files.isDirectory(parent)) {
+            Files.createDirectories(parent);
+        }
+        try (RandomAccessFile out = new RandomAccessFile(target.toFile(), "rw")) {
+            if (size >= 0) {
+                out.setLength(size);
+            }
+            long written = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                written += read;
+            }
+            if (written != out.length()) {
+                out.setLength(written);
+            }
+        }
+    }
+
+    private static Path prepareRoot(Path targetDir) throws IOException {
+        Files.createDirectories(targetDir);
+        return targetDir.toAbsolutePath().normalize();
+    }
+
+    private static Path resolve(Path root, String name) throws IOException {
+        Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root)) {
+            Engine.LOGGER.error("Refusing to extract {} outside of {}", name, root);
+            throw new IOException("Zip entry is outside of the target directory: " + name);
+        }
+        return target;
+    }
+}
@@ -1,15 +1,19 @@
 package org.foxesworld.engine.utils.HTTP;
 
 import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.metrics.HttpRequestEvent;
+import org.foxesworld.engine.metrics.MetricsRegistry;
 
 import java.io.*;
-import java.lang.reflect.Field;
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
 
 /**
  * A utility class for performing asynchronous HTTP requests.
@@ -18,6 +22,10 @@ import java.util.concurrent.*;
  * sends requests asynchronously, and supports both callback-based and CompletableFuture-based approaches.
  * </p>
  * <p>
+ * Requests are sent through the shared {@link HttpTransport}, so all instances reuse the same
+ * keep-alive connections and threads. Annotated fields of every request class are looked up once.
+ * </p>
+ * <p>
  * Note: The {@link #sendAsync(Map, OnSuccess, OnFailure)} method is deprecated. Please use {@link #sendAsyncCF(Map)}
  * instead.
  * </p>
@@ -25,14 +33,13 @@ import java.util.concurrent.*;
 public class HTTPrequest {
     private final String requestMethod;
     private final Engine engine;
-    private final ExecutorService executorService;
+    private final HttpTransport transport = HttpTransport.getInstance();
     private static final int RETRY_INTERVAL = 50; // in milliseconds
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    // Coalesced requests being sent right now, keyed by class, method, URL, parameters and headers
+    private static final Map<String, CompletableFuture<String>> IN_FLIGHT = new ConcurrentHashMap<>();
 
     private volatile RequestState requestState;
-    private HttpURLConnection httpURLConnection; // Last used connection reference
-
-    // Shared Random instance for generating boundary strings
-    private static final Random RANDOM = new Random();
 
     /**
      * Constructs a new HTTPrequest with the specified engine and request method.
@@ -43,7 +50,6 @@ public class HTTPrequest {
     public HTTPrequest(Engine engine, String requestMethod) {
         this.engine = engine;
         this.requestMethod = requestMethod;
-        this.executorService = Executors.newCachedThreadPool();
         this.requestState = RequestState.PENDING;
         Engine.LOGGER.info("HTTP {} initialized", requestMethod);
     }
@@ -85,174 +91,207 @@ public class HTTPrequest {
      * Sends an asynchronous HTTP request with additional parameters.
      * <p>
      * Returns a {@link CompletableFuture} that will complete when the server responds.
+     * Concurrent identical requests of classes annotated with {@link HttpCoalesce} or {@link HttpCache} share
+     * one server call, and responses of {@link HttpCache} classes are served from the cache while they are fresh.
+     * Other requests are always sent, so a non-idempotent request is never merged with another one.
      * </p>
      *
      * @param extraParams additional request parameters
      * @return CompletableFuture containing the server response, or an exception if the request fails
      */
     public CompletableFuture<String> sendAsyncCF(Map<String, Object> extraParams) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        executorService.submit(() -> {
-            try {
-                String response = executeRequest(extraParams);
-                requestState = RequestState.SUCCESS;
-                future.complete(response);
-            } catch (Exception e) {
-                requestState = RequestState.FAILED;
-                future.completeExceptionally(e);
-                Engine.LOGGER.error("Request failed {}", e);
-            }
-        });
-        return future;
-    }
-
-    /**
-     * Executes the HTTP request synchronously.
-     *
-     * @param extraParams additional request parameters
-     * @return the response from the server
-     * @throws Exception if an error occurs during the request
-     */
-    private String executeRequest(Map<String, Object> extraParams) throws Exception {
-        URL url = new URL(engine.getEngineData().getBindUrl());
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        // Store the connection reference for potential inspection
-        this.httpURLConnection = connection;
+        CompletableFuture<String> future;
         try {
-            configureConnection(connection);
-            // Merge parameters from annotations and extra parameters
-            Map<String, Object> allParams = new HashMap<>(collectParams());
-            allParams.putAll(extraParams);
-            sendRequest(allParams, connection);
-            return getResponse(connection);
-        } finally {
-            connection.disconnect();
+            future = sendCoalesced(extraParams);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
         }
+        return trackState(future);
     }
 
     /**
-     * Sends the request payload to the server.
+     * Sends an asynchronous HTTP request and hands the response stream to {@code reader}.
+     * <p>
+     * The reader runs on a thread of the shared transport while the body is still arriving, so large responses
+     * can be processed incrementally instead of being buffered into a String first.
+     * Streamed requests are neither coalesced nor cached.
+     * </p>
      *
-     * @param parameters the request parameters to be sent
-     * @param connection the active HttpURLConnection
-     * @throws IOException if an I/O error occurs
+     * @param extraParams  additional request parameters
+     * @param extraHeaders additional request headers, e.g. conditional request headers
+     * @param reader       consumer of the response status, headers and body
+     * @param <T>          type produced by the reader
+     * @return CompletableFuture containing the value returned by {@code reader}
      */
-    private void sendRequest(Map<String, Object> parameters, HttpURLConnection connection) throws IOException {
-        try (OutputStream os = connection.getOutputStream()) {
-            String postData = formParams(parameters).toString();
-            os.write(postData.getBytes(StandardCharsets.UTF_8));
+    public <T> CompletableFuture<T> sendAsyncCF(Map<String, Object> extraParams, Map<String, String> extraHeaders, ResponseReader<T> reader) {
+        CompletableFuture<T> future;
+        try {
+            RequestBinding binding = RequestBinding.of(getClass());
+            future = send(buildRequest(binding, binding.encodeForm(this, extraParams), extraHeaders), reader);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
         }
+        return trackState(future);
     }
 
     /**
-     * Reads the response from the server.
-     *
-     * @param connection the active HttpURLConnection
-     * @return the response as a String
-     * @throws IOException if an I/O error occurs
+     * Sends the request unless an identical one is already in flight or its response is cached.
+     * <p>
+     * For classes annotated with {@link HttpCoalesce} or {@link HttpCache}, identical requests (same class,
+     * method, URL, parameters and header fields) sent while the first one is still running share its response.
+     * Classes annotated with {@link HttpCache} additionally reuse successful responses until their time to
+     * live expires. Requests of other classes are sent as is.
+     * </p>
      */
-    private String getResponse(HttpURLConnection connection) throws IOException {
-        StringBuilder response = new StringBuilder();
-        try (InputStream is = connection.getInputStream();
-             BufferedReader rd = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = rd.readLine()) != null) {
-                response.append(line);
+    private CompletableFuture<String> sendCoalesced(Map<String, Object> extraParams) {
+        RequestBinding binding = RequestBinding.of(getClass());
+        String form = binding.encodeForm(this, extraParams);
+        if (!binding.isCoalesced()) {
+            return send(buildRequest(binding, form, Collections.emptyMap()), HTTPrequest::readBody);
+        }
+        String key = requestKey(binding, form);
+        HttpCache cachePolicy = binding.getCache();
+        if (cachePolicy != null) {
+            String cached = ResponseCache.getInstance().get(key, cachePolicy);
+            if (cached != null) {
+                MetricsRegistry.getInstance().increment("http.cacheHits");
+                return CompletableFuture.completedFuture(cached);
             }
         }
-        return response.toString();
+
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = IN_FLIGHT.putIfAbsent(key, created);
+        if (inFlight != null) {
+            Engine.LOGGER.debug("Joining in-flight request of {}", getClass().getSimpleName());
+            MetricsRegistry.getInstance().increment("http.coalesced");
+            return inFlight.thenApply(Function.identity());
+        }
+        try {
+            send(buildRequest(binding, form, Collections.emptyMap()), HTTPrequest::readBody).whenComplete((response, e) -> {
+                if (e == null) {
+                    if (cachePolicy != null) {
+                        ResponseCache.getInstance().put(key, response, cachePolicy);
+                    }
+                    created.complete(response);
+                } else {
+                    created.completeExceptionally(e);
+                }
+                IN_FLIGHT.remove(key, created);
+            });
+        } catch (RuntimeException e) {
+            IN_FLIGHT.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        // Callers get their own stage, so cancelling one does not affect the others
+        return created.thenApply(Function.identity());
     }
 
-    /**
-     * Configures the HttpURLConnection with method, timeouts, headers, and other settings.
-     *
-     * @param connection the HttpURLConnection to configure
-     * @throws Exception if an error occurs during configuration
-     */
-    private void configureConnection(HttpURLConnection connection) throws Exception {
-        connection.setRequestMethod(this.requestMethod);
-        HTTPconf httpConf = engine.getEngineData().getHttPconf();
-        setRequestProperties(connection, httpConf.getRequestProperties());
-        applyAnnotations(connection);
-        connection.setUseCaches(httpConf.isUseCaches());
-        connection.setDoInput(httpConf.isDoInput());
-        connection.setDoOutput(httpConf.isDoOutput());
-        connection.connect();
+    private String requestKey(RequestBinding binding, String form) {
+        StringBuilder key = new StringBuilder(getClass().getName())
+                .append(' ').append(requestMethod)
+                .append(' ').append(engine.getEngineData().getBindUrl())
+                .append('?').append(form);
+        binding.forEachHeader(this, (name, value) -> key.append('\n').append(name).append(": ").append(value));
+        return key.toString();
     }
 
-    /**
-     * Constructs a URL-encoded query string from the given parameters.
-     *
-     * @param parameters the request parameters
-     * @return a StringBuilder containing the URL-encoded query string
-     */
-    private StringBuilder formParams(Map<String, Object> parameters) {
-        StringBuilder postData = new StringBuilder();
-        for (Map.Entry<String, Object> param : parameters.entrySet()) {
-            if (postData.length() != 0) {
-                postData.append('&');
+    private <T> CompletableFuture<T> send(HttpRequest request, ResponseReader<T> reader) {
+        HttpRequestEvent event = new HttpRequestEvent();
+        long started = System.nanoTime();
+        event.begin();
+        return transport.sendAsync(request, response -> {
+            event.statusCode = response.getStatusCode();
+            if (response.getStatusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new IOException("HTTP " + response.getStatusCode() + " from " + request.uri());
             }
-            postData.append(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8))
-                    .append('=')
-                    .append(URLEncoder.encode(param.getValue().toString(), StandardCharsets.UTF_8));
-        }
-        return postData;
+            return reader.read(response);
+        }).whenComplete((response, e) -> {
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.recordSince("http.request.nanos", started);
+            metrics.increment(e == null ? "http.requests" : "http.failures");
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestClass = getClass().getName();
+                event.method = request.method();
+                // Without the query, which may carry credentials
+                URI uri = request.uri();
+                event.uri = uri.getScheme() + "://" + uri.getAuthority() + uri.getPath();
+                event.failure = e == null ? null : String.valueOf(e.getCause() != null ? e.getCause() : e);
+                event.commit();
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> trackState(CompletableFuture<T> future) {
+        return future.whenComplete((response, e) -> {
+            if (e == null) {
+                requestState = RequestState.SUCCESS;
+            } else {
+                requestState = RequestState.FAILED;
+                Engine.LOGGER.error("Request failed {}", e);
+            }
+        });
     }
 
     /**
-     * Sets request properties (headers) on the HttpURLConnection.
+     * Builds the HTTP request from the configured defaults, annotated fields and extra values.
+     * <p>
+     * Parameters are form-encoded. They are sent as the request body when {@code doOutput} is enabled
+     * in the configuration, otherwise as the query string. A body is never sent with GET: like
+     * {@link HttpURLConnection} did before, such a request is sent as POST.
+     * </p>
      *
-     * @param connection the HttpURLConnection to configure
-     * @param properties a list of RequestProperty objects representing header key-value pairs
+     * @param binding      binding plan of the request class
+     * @param form         form-encoded annotated and extra parameters
+     * @param extraHeaders additional request headers
+     * @return the request to send
      */
-    public void setRequestProperties(HttpURLConnection connection, List<RequestProperty> properties) {
-        for (RequestProperty requestProperty : properties) {
-            String value = requestProperty.getPropertyValue();
-            if (value.contains("{$boundary}")) {
-                value = value.replace("{$boundary}", getBoundary(3, 3));
-            }
-            connection.setRequestProperty(requestProperty.getPropertyKey(), value);
+    private HttpRequest buildRequest(RequestBinding binding, String form, Map<String, String> extraHeaders) {
+        HTTPconf httpConf = engine.getEngineData().getHttPconf();
+
+        String url = engine.getEngineData().getBindUrl();
+        boolean withBody = httpConf.isDoOutput();
+        if (!withBody && !form.isEmpty()) {
+            url += (url.contains("?") ? "&" : "?") + form;
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url));
+        if (withBody) {
+            // Default of HttpURLConnection, the configured headers may override it
+            builder.setHeader("Content-Type", FORM_CONTENT_TYPE);
+            String method = "GET".equalsIgnoreCase(requestMethod) ? "POST" : requestMethod;
+            builder.method(method, HttpRequest.BodyPublishers.ofString(form, StandardCharsets.UTF_8));
+        } else {
+            builder.method(requestMethod, HttpRequest.BodyPublishers.noBody());
+        }
+        if (httpConf.getRequestProperties() != null) {
+            setRequestProperties(builder, httpConf.getRequestProperties());
         }
+        applyAnnotations(builder, binding);
+        extraHeaders.forEach((name, value) -> HttpTransport.setHeader(builder, name, value));
+        return builder.build();
     }
 
     /**
-     * Collects parameters annotated with {@code @HttpParam} from the current instance.
+     * Reads the whole response body as a UTF-8 String, line breaks included.
      *
-     * @return a map of parameter names and their corresponding values
+     * @param response the server response
+     * @return the response body
+     * @throws IOException if an I/O error occurs
      */
-    private Map<String, Object> collectParams() {
-        Map<String, Object> params = new HashMap<>();
-        for (Field field : this.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(HttpParam.class)) {
-                field.setAccessible(true);
-                try {
-                    Object value = field.get(this);
-                    if (value != null) {
-                        HttpParam httpParam = field.getAnnotation(HttpParam.class);
-                        String key = httpParam.value().isEmpty() ? field.getName() : httpParam.value();
-                        params.put(key, value);
-                    }
-                } catch (IllegalAccessException e) {
-                    Engine.LOGGER.error("Error reading param {}: {}", field.getName(), e.getMessage());
-                }
-            }
-        }
-        return params;
+    private static String readBody(RawResponse response) throws IOException {
+        return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
     }
 
     /**
-     * Generates a boundary string for multipart requests.
+     * Sets request properties (headers) on the request builder.
      *
-     * @param length the number of segments to generate
-     * @param radix  the radix used for number conversion
-     * @return a generated boundary string
+     * @param builder    the request builder to configure
+     * @param properties a list of RequestProperty objects representing header key-value pairs
      */
-    private String getBoundary(int length, int radix) {
-        StringBuilder boundary = new StringBuilder();
-        for (int k = 0; k < length; k++) {
-            boundary.append(Long.toString(RANDOM.nextLong(), radix));
+    public void setRequestProperties(HttpRequest.Builder builder, List<RequestProperty> properties) {
+        for (RequestProperty requestProperty : properties) {
+            HttpTransport.setHeader(builder, requestProperty.getPropertyKey(), requestProperty.getPropertyValue());
         }
-        return boundary.toString();
     }
 
     /**
@@ -272,57 +311,36 @@ public class HTTPrequest {
     }
 
     /**
-     * Gets the last used HttpURLConnection.
+     * Kept for compatibility: requests run on the shared {@link HttpTransport} pool, which lives as long
+     * as the application.
      *
-     * @return the last HttpURLConnection instance, or null if none
-     */
-    public HttpURLConnection getHttpURLConnection() {
-        return httpURLConnection;
-    }
-
-    /**
-     * Shuts down the executor service used for asynchronous requests.
+     * @deprecated there is nothing to shut down per request object.
      */
+    @Deprecated
     public void shutdown() {
-        executorService.shutdown();
     }
 
     /**
-     * Applies annotations to configure the HttpURLConnection (e.g., timeouts and headers).
+     * Applies annotations to configure the request (e.g., timeouts and headers).
      * <p>
-     * Fields annotated with {@code @HttpConfig} or {@code @HttpHeader} will be processed.
-     * Note: For header fields, the key is derived from the {@code @HttpParam} annotation.
+     * Fields annotated with {@code @HttpConfig} or {@code @HttpHeader} will be processed, including fields
+     * inherited from superclasses. The header name is taken from {@code @HttpHeader#key()}, then from
+     * {@code @HttpParam} if the field has one, then from the field name.
+     * The connect timeout is shared by all requests, so only the read timeout of {@code @HttpConfig}
+     * is applied, as the time to wait for the response.
      * </p>
      *
-     * @param connection the HttpURLConnection to configure
+     * @param builder the request builder to configure
+     * @param binding binding plan of the request class
      */
-    private void applyAnnotations(HttpURLConnection connection) {
-        Class<?> clazz = this.getClass();
-
-        if (clazz.isAnnotationPresent(HttpConfig.class)) {
-            HttpConfig config = clazz.getAnnotation(HttpConfig.class);
-            connection.setConnectTimeout(config.connectTimeout());
-            connection.setReadTimeout(config.readTimeout());
-            Engine.LOGGER.info("Setting timeout: connect = {} ms, read = {} ms", config.connectTimeout(), config.readTimeout());
-        }
-
-        for (Field field : clazz.getDeclaredFields()) {
-            if (field.isAnnotationPresent(HttpHeader.class)) {
-                field.setAccessible(true);
-                try {
-                    // Assuming the header key is provided via the @HttpParam annotation.
-                    HttpParam httpParam = field.getAnnotation(HttpParam.class);
-                    String key = httpParam.value().isEmpty() ? field.getName() : httpParam.value();
-                    String value = (String) field.get(this);
-                    if (value != null) {
-                        connection.setRequestProperty(key, value);
-                        Engine.LOGGER.info("Added header: {} = {}", key, value);
-                    }
-                } catch (IllegalAccessException e) {
-                    Engine.LOGGER.error("Error adding header {}: {}", field.getName(), e.getMessage());
-                }
-            }
+    private void applyAnnotations(HttpRequest.Builder builder, RequestBinding binding) {
+        if (binding.getConfig() != null) {
+            builder.timeout(Duration.ofMillis(binding.getConfig().readTimeout()));
         }
+        binding.forEachHeader(this, (key, value) -> {
+            HttpTransport.setHeader(builder, key, value);
+            Engine.LOGGER.debug("Added header: {} = {}", key, value);
+        });
     }
 
     /**
@@ -337,22 +355,19 @@ public class HTTPrequest {
      * @throws Exception if an error occurs during the connection or data transfer.
      */
     public double measureConnectionSpeed() throws Exception {
-        URL url = new URL(engine.getEngineData().getBindUrl());
-        HttpURLConnection speedConnection = (HttpURLConnection) url.openConnection();
-        speedConnection.setRequestMethod("GET");
-        speedConnection.setDoInput(true);
-        speedConnection.setConnectTimeout(5000);
-        speedConnection.setReadTimeout(5000);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(engine.getEngineData().getBindUrl()))
+                .GET()
+                .timeout(Duration.ofMillis(5000))
+                .build();
         long startTime = System.nanoTime();
-        int totalBytes = 0;
-        try (InputStream is = speedConnection.getInputStream()) {
+        long totalBytes = 0;
+        HttpResponse<InputStream> response = transport.open(request);
+        try (InputStream is = response.body()) {
             byte[] buffer = new byte[4096];
             int bytesRead;
             while ((bytesRead = is.read(buffer)) != -1) {
                 totalBytes += bytesRead;
             }
-        } finally {
-            speedConnection.disconnect();
         }
         long endTime = System.nanoTime();
         double elapsedTimeSec = (endTime - startTime) / 1_000_000_000.0;
@@ -0,0 +1,20 @@
+package org.foxesworld.engine.utils.HTTP;
+
+import java.lang.annotation.*;
+
+/**
+ * Enables caching of successful responses of a request class.
+ * <p>
+ * Responses are cached per request: class, URL, parameters and header fields form the key.
+ * Only requests sent with {@link HTTPrequest#sendAsyncCF(java.util.Map)} are cached.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HttpCache {
+    /** Time to live of a cached response, in seconds. */
+    long ttl();
+
+    /** Whether the response is also stored on disk and survives a restart. */
+    boolean disk() default false;
+}
@@ -0,0 +1,16 @@
+package org.foxesworld.engine.utils.HTTP;
+
+import java.lang.annotation.*;
+
+/**
+ * Lets identical requests of a request class share one server call while it is in flight.
+ * <p>
+ * Only annotate classes whose requests are safe to send once for several callers, i.e. read-only
+ * requests whatever their HTTP method. Classes annotated with {@link HttpCache} are coalesced as well.
+ * Only requests sent with {@link HTTPrequest#sendAsyncCF(java.util.Map)} are coalesced.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HttpCoalesce {
+}
@@ -0,0 +1,187 @@
+package org.foxesworld.engine.utils.HTTP;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP transport of the engine.
+ * <p>
+ * All requests go through one {@link HttpClient}, which keeps connections alive, negotiates HTTP/2 where
+ * the server supports it and multiplexes concurrent requests over a single connection. Responses are
+ * handled on one shared pool of daemon threads instead of a pool per request object, so repeated
+ * launcher calls reuse both connections (and their TLS sessions) and threads.
+ * </p>
+ */
+public final class HttpTransport {
+
+    /** Connect timeout of the shared client, the same as the {@link HttpConfig} default. */
+    public static final Duration CONNECT_TIMEOUT = Duration.ofMillis(5000);
+
+    // Headers managed by HttpClient itself, setting them throws IllegalArgumentException
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(List.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+
+    private static final Random RANDOM = new Random();
+    private static final HttpTransport INSTANCE = new HttpTransport();
+
+    private final ExecutorService executor;
+    private final HttpClient client;
+
+    private HttpTransport() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(executor)
+                .build();
+    }
+
+    public static HttpTransport getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a request builder carrying the configured default headers.
+     *
+     * @param uri        the request URI
+     * @param properties default headers from {@code engine.json}, may be {@code null}
+     * @return a new request builder
+     */
+    public HttpRequest.Builder newRequest(URI uri, List<RequestProperty> properties) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        if (properties != null) {
+            for (RequestProperty property : properties) {
+                setHeader(builder, property.getPropertyKey(), property.getPropertyValue());
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Sets a header on the builder, skipping headers the client manages itself.
+     * A {@code {$boundary}} placeholder in the value is replaced with a random boundary.
+     */
+    public static void setHeader(HttpRequest.Builder builder, String name, String value) {
+        if (name == null || value == null || RESTRICTED_HEADERS.contains(name)) {
+            return;
+        }
+        if (value.contains("{$boundary}")) {
+            value = value.replace("{$boundary}", getBoundary(3, 3));
+        }
+        builder.setHeader(name, value);
+    }
+
+    /**
+     * Sends a request and reads the response on the calling thread.
+     *
+     * @param request the request to send
+     * @param reader  consumer of the response
+     * @return the value produced by {@code reader}
+     * @throws IOException if the request fails, or the calling thread is interrupted
+     */
+    public <T> T send(HttpRequest request, ResponseReader<T> reader) throws IOException {
+        HttpResponse<InputStream> response = open(request);
+        try (InputStream body = response.body()) {
+            return reader.read(toRawResponse(response, body));
+        }
+    }
+
+    /**
+     * Sends a request without blocking the caller. The response is read on the shared pool.
+     *
+     * @param request the request to send
+     * @param reader  consumer of the response
+     * @return a future with the value produced by {@code reader}
+     */
+    public <T> CompletableFuture<T> sendAsync(HttpRequest request, ResponseReader<T> reader) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync(response -> {
+                    try (InputStream body = response.body()) {
+                        return reader.read(toRawResponse(response, body));
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+    }
+
+    /**
+     * Sends a request and returns the response with an unread body, which the caller must close.
+     *
+     * @param request the request to send
+     * @return the response
+     * @throws IOException if the request fails, or the calling thread is interrupted
+     */
+    public HttpResponse<InputStream> open(HttpRequest request) throws IOException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to " + request.uri() + " was interrupted");
+        }
+    }
+
+    /**
+     * Sends a request and hands the body to the subscriber chosen by {@code handler}, waiting until it is done.
+     *
+     * @param request the request to send
+     * @param handler chooses the body subscriber from the status and headers
+     * @return the response with the value produced by the subscriber
+     * @throws IOException if the request or the subscriber fails, or the calling thread is interrupted
+     */
+    public <T> HttpResponse<T> receive(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to " + request.uri() + " was interrupted");
+        }
+    }
+
+    public HttpClient getClient() {
+        return client;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    private static RawResponse toRawResponse(HttpResponse<?> response, InputStream body) {
+        return new RawResponse(response.statusCode(), response.headers().map(), body);
+    }
+
+    /**
+     * Generates a boundary string for multipart requests.
+     *
+     * @param length the number of segments to generate
+     * @param radix  the radix used for number conversion
+     * @return a generated boundary string
+     */
+    private static String getBoundary(int length, int radix) {
+        StringBuilder boundary = new StringBuilder();
+        for (int k = 0; k < length; k++) {
+            boundary.append(Long.toString(RANDOM.nextLong(), radix));
+        }
+        return boundary.toString();
+    }
+}
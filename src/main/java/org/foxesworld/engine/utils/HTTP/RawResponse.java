@@ -0,0 +1,52 @@
+package org.foxesworld.engine.utils.HTTP;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Status, headers and unread body stream of an HTTP response.
+ * <p>
+ * Passed to a {@link ResponseReader}, which consumes the body while it is still arriving.
+ * Header names are matched case-insensitively.
+ * </p>
+ */
+public class RawResponse {
+    private final int statusCode;
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final InputStream body;
+
+    public RawResponse(int statusCode, Map<String, List<String>> headers, InputStream body) {
+        this.statusCode = statusCode;
+        headers.forEach((name, values) -> {
+            if (name != null) {
+                this.headers.put(name, values);
+            }
+        });
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the first value of a response header.
+     *
+     * @param name header name, case-insensitive
+     * @return header value, or {@code null} if the header is absent
+     */
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+}
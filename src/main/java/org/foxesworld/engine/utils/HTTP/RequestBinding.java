@@ -0,0 +1,174 @@
+package org.foxesworld.engine.utils.HTTP;
+
+import org.foxesworld.engine.Engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Binding plan of a request class: how its {@code @HttpParam} and {@code @HttpHeader} fields turn into
+ * form parameters and headers.
+ * <p>
+ * The plan is built once per class, including the fields declared by its superclasses, and reads the
+ * fields through {@link VarHandle}s. Parameter names are URL-encoded in advance and parameters are
+ * written straight into a per-thread form buffer, so sending a request does no reflection and builds
+ * no intermediate maps.
+ * </p>
+ */
+final class RequestBinding {
+
+    private static final ClassValue<RequestBinding> PLANS = new ClassValue<>() {
+        @Override
+        protected RequestBinding computeValue(Class<?> type) {
+            return new RequestBinding(type);
+        }
+    };
+
+    // Larger buffers are not kept between requests
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> FORM_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final HttpConfig config;
+    private final HttpCache cache;
+    private final boolean coalesced;
+    private final Binding[] params;
+    private final Binding[] headers;
+
+    private RequestBinding(Class<?> type) {
+        this.config = type.getAnnotation(HttpConfig.class);
+        this.cache = type.getAnnotation(HttpCache.class);
+        this.coalesced = cache != null || type.isAnnotationPresent(HttpCoalesce.class);
+        Map<String, Binding> params = new LinkedHashMap<>();
+        Map<String, Binding> headers = new LinkedHashMap<>();
+        // Subclass fields come first and win over superclass fields with the same name
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                HttpParam httpParam = field.getAnnotation(HttpParam.class);
+                HttpHeader httpHeader = field.getAnnotation(HttpHeader.class);
+                if (httpParam == null && httpHeader == null) {
+                    continue;
+                }
+                VarHandle handle = handle(field);
+                if (httpParam != null) {
+                    String name = httpParam.value().isEmpty() ? field.getName() : httpParam.value();
+                    params.putIfAbsent(name, new Binding(name, handle, Modifier.isStatic(field.getModifiers())));
+                }
+                if (httpHeader != null) {
+                    String name = !httpHeader.key().isEmpty() ? httpHeader.key()
+                            : httpParam != null && !httpParam.value().isEmpty() ? httpParam.value()
+                            : field.getName();
+                    headers.putIfAbsent(name, new Binding(name, handle, Modifier.isStatic(field.getModifiers())));
+                }
+            }
+        }
+        this.params = params.values().toArray(new Binding[0]);
+        this.headers = headers.values().toArray(new Binding[0]);
+    }
+
+    static RequestBinding of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    HttpConfig getConfig() {
+        return config;
+    }
+
+    HttpCache getCache() {
+        return cache;
+    }
+
+    boolean isCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Form-encodes the annotated parameters of {@code target} together with {@code extraParams}.
+     * An extra parameter replaces an annotated one with the same name.
+     *
+     * @param target      the request object
+     * @param extraParams additional parameters
+     * @return the {@code application/x-www-form-urlencoded} string
+     */
+    String encodeForm(Object target, Map<String, Object> extraParams) {
+        StringBuilder form = FORM_BUFFER.get();
+        form.setLength(0);
+        try {
+            for (Binding param : params) {
+                if (extraParams.containsKey(param.name)) {
+                    continue;
+                }
+                Object value = param.get(target);
+                if (value != null) {
+                    append(form, param.encodedName, value);
+                }
+            }
+            for (Map.Entry<String, Object> param : extraParams.entrySet()) {
+                if (param.getValue() != null) {
+                    append(form, URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8), param.getValue());
+                }
+            }
+            return form.toString();
+        } finally {
+            if (form.capacity() > MAX_RETAINED_BUFFER) {
+                FORM_BUFFER.remove();
+            }
+        }
+    }
+
+    /**
+     * Hands the non-null header fields of {@code target} to {@code consumer}.
+     */
+    void forEachHeader(Object target, BiConsumer<String, String> consumer) {
+        for (Binding header : headers) {
+            Object value = header.get(target);
+            if (value != null) {
+                consumer.accept(header.name, value.toString());
+            }
+        }
+    }
+
+    private static void append(StringBuilder form, String encodedName, Object value) {
+        if (form.length() != 0) {
+            form.append('&');
+        }
+        form.append(encodedName).append('=').append(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+    }
+
+    private static VarHandle handle(Field field) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            return lookup.unreflectVarHandle(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access request field " + field, e);
+        }
+    }
+
+    private static final class Binding {
+        private final String name;
+        private final String encodedName;
+        private final VarHandle handle;
+        private final boolean isStatic;
+
+        private Binding(String name, VarHandle handle, boolean isStatic) {
+            this.name = name;
+            this.encodedName = URLEncoder.encode(name, StandardCharsets.UTF_8);
+            this.handle = handle;
+            this.isStatic = isStatic;
+        }
+
+        private Object get(Object target) {
+            try {
+                return isStatic ? handle.get() : handle.get(target);
+            } catch (RuntimeException e) {
+                Engine.LOGGER.error("Error reading param {}: {}", name, e.getMessage());
+                return null;
+            }
+        }
+    }
+}
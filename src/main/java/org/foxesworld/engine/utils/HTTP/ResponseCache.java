@@ -0,0 +1,103 @@
+package org.foxesworld.engine.utils.HTTP;
+
+import org.foxesworld.engine.Engine;
+import org.foxesworld.engine.utils.HashUtils;
+import org.foxesworld.engine.utils.helper.IOHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory and on-disk cache of responses of {@link HttpCache} request classes.
+ * <p>
+ * Disk entries are stored under {@code launcher.httpCacheDir} (by default {@code cache/http} in the working
+ * directory), named by the SHA-1 of the request key so request parameters do not appear in file names.
+ * The first line of an entry holds its expiry time in epoch milliseconds, the rest is the response body.
+ * </p>
+ */
+final class ResponseCache {
+
+    private static final ResponseCache INSTANCE = new ResponseCache(
+            Paths.get(System.getProperty("launcher.httpCacheDir", IOHelper.WORKING_DIR.resolve("cache").resolve("http").toString())));
+
+    private final Path dir;
+    private final Map<String, Entry> memory = new ConcurrentHashMap<>();
+
+    private ResponseCache(Path dir) {
+        this.dir = dir;
+    }
+
+    static ResponseCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a cached response that has not expired yet.
+     *
+     * @param key    the request key
+     * @param policy caching policy of the request class
+     * @return the response body, or {@code null} on a miss
+     */
+    String get(String key, HttpCache policy) {
+        long now = System.currentTimeMillis();
+        Entry entry = memory.get(key);
+        if (entry == null && policy.disk()) {
+            entry = readDisk(key);
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= now) {
+            memory.remove(key, entry);
+            return null;
+        }
+        return entry.body;
+    }
+
+    void put(String key, String body, HttpCache policy) {
+        Entry entry = new Entry(body, System.currentTimeMillis() + policy.ttl() * 1000);
+        memory.put(key, entry);
+        if (policy.disk()) {
+            writeDisk(key, entry);
+        }
+    }
+
+    private Entry readDisk(String key) {
+        Path file = dir.resolve(HashUtils.sha1String(key));
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            if (newline < 0) {
+                return null;
+            }
+            return new Entry(content.substring(newline + 1), Long.parseLong(content.substring(0, newline)));
+        } catch (IOException | NumberFormatException e) {
+            Engine.LOGGER.debug("Unreadable HTTP cache entry {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry) {
+        Path file = dir.resolve(HashUtils.sha1String(key));
+        try {
+            Files.createDirectories(dir);
+            Path tmp = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+            Files.writeString(tmp, entry.expiresAt + "\n" + entry.body, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Engine.LOGGER.debug("Unable to store HTTP cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record Entry(String body, long expiresAt) {
+    }
+}
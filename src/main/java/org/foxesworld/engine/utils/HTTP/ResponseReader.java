@@ -0,0 +1,13 @@
+package org.foxesworld.engine.utils.HTTP;
+
+import java.io.IOException;
+
+/**
+ * Consumes an HTTP response while it is streamed from the server.
+ *
+ * @param <T> type of the value produced from the response
+ */
+@FunctionalInterface
+public interface ResponseReader<T> {
+    T read(RawResponse response) throws IOException;
+}
@@ -0,0 +1,189 @@
+package org.foxesworld.engine.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared file hashing service.
+ * <p>
+ * Files are read through a {@link FileChannel} into a large direct buffer, so a
+ * multi-gigabyte tree is hashed with few system calls and without heap copies. The buffers come from
+ * a small shared pool: at most one per core is ever allocated, however many threads hash, and a
+ * hash waits for a free buffer when all of them are in use. When several
+ * algorithms are requested, every buffer is fed to all digests, so the file is read only once.
+ * Asynchronous hashes and batches run on the engine's work-stealing pool, which the engine hands over
+ * with {@link #setExecutor(Executor)} at start-up; until then they run on the common {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * Direct buffers are used instead of memory mapping on purpose: a mapped file stays locked on
+ * Windows until the mapping is garbage collected, which breaks replacing invalid files right
+ * after they were checked.
+ * </p>
+ */
+public final class HashService {
+
+    public enum Algorithm {
+        MD5("MD5"),
+        SHA1("SHA-1"),
+        SHA256("SHA-256");
+
+        private final String jcaName;
+
+        Algorithm(String jcaName) {
+            this.jcaName = jcaName;
+        }
+
+        public String getJcaName() {
+            return jcaName;
+        }
+
+        public MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance(jcaName);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(jcaName + " algorithm not found", e);
+            }
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_BUFFERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final BlockingQueue<ByteBuffer> FREE_BUFFERS = new LinkedBlockingQueue<>();
+    private static final AtomicInteger ALLOCATED_BUFFERS = new AtomicInteger();
+    private static final HashService INSTANCE = new HashService(ForkJoinPool.commonPool());
+
+    private volatile Executor executor;
+
+    public HashService(Executor executor) {
+        this.executor = executor;
+    }
+
+    public static HashService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Changes the pool asynchronous hashes run on, e.g. to
+     * {@link org.foxesworld.engine.service.ExecutorServiceProvider#getForkJoinPool()}.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Hashes a file with a single algorithm.
+     *
+     * @return lowercase hex digest
+     */
+    public String hash(Path file, Algorithm algorithm) throws IOException {
+        return hash(file, EnumSet.of(algorithm)).get(algorithm);
+    }
+
+    /**
+     * Hashes a file with all requested algorithms in one read.
+     *
+     * @return lowercase hex digests keyed by algorithm
+     */
+    public Map<Algorithm, String> hash(Path file, Set<Algorithm> algorithms) throws IOException {
+        Algorithm[] requested = algorithms.toArray(new Algorithm[0]);
+        MessageDigest[] digests = new MessageDigest[requested.length];
+        for (int i = 0; i < requested.length; i++) {
+            digests[i] = requested[i].newDigest();
+        }
+
+        ByteBuffer buffer = acquireBuffer();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                buffer.flip();
+                for (MessageDigest digest : digests) {
+                    digest.update(buffer.duplicate());
+                }
+            }
+        } finally {
+            FREE_BUFFERS.offer(buffer);
+        }
+
+        Map<Algorithm, String> result = new EnumMap<>(Algorithm.class);
+        for (int i = 0; i < requested.length; i++) {
+            result.put(requested[i], toHex(digests[i].digest()));
+        }
+        return result;
+    }
+
+    /**
+     * Hashes a file on the pool set with {@link #setExecutor(Executor)}.
+     */
+    public CompletableFuture<Map<Algorithm, String>> hashAsync(Path file, Set<Algorithm> algorithms) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return hash(file, algorithms);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<String> hashAsync(Path file, Algorithm algorithm) {
+        return hashAsync(file, EnumSet.of(algorithm)).thenApply(result -> result.get(algorithm));
+    }
+
+    /**
+     * Hashes a batch of files in parallel.
+     *
+     * @param files      files to hash
+     * @param algorithms algorithms to compute for every file
+     * @return one future per file, in the same order as {@code files}
+     */
+    public List<CompletableFuture<Map<Algorithm, String>>> hashAll(List<Path> files, Set<Algorithm> algorithms) {
+        List<CompletableFuture<Map<Algorithm, String>>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(hashAsync(file, algorithms));
+        }
+        return futures;
+    }
+
+    private static ByteBuffer acquireBuffer() throws InterruptedIOException {
+        ByteBuffer buffer = FREE_BUFFERS.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (ALLOCATED_BUFFERS.getAndIncrement() < MAX_BUFFERS) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        ALLOCATED_BUFFERS.decrementAndGet();
+        try {
+            return FREE_BUFFERS.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a hash buffer");
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
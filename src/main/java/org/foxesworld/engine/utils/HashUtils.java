@@ -2,14 +2,10 @@ package org.foxesworld.engine.utils;
 
 import org.foxesworld.engine.Engine;
 
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
-import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Formatter;
 
 @SuppressWarnings("unused")
 public final class HashUtils {
@@ -17,47 +13,10 @@ public final class HashUtils {
         if (new File(filename).isDirectory()) {
             return "IDE";
         }
-        FileInputStream fis = null;
-        FilterInputStream dis = null;
-        BufferedInputStream bis = null;
-        Formatter formatter = null;
         try {
-            MessageDigest messagedigest = MessageDigest.getInstance("MD5");
-            fis = new FileInputStream(filename);
-
-            bis = new BufferedInputStream(fis);
-            dis = new DigestInputStream(bis, messagedigest);
-            while ((dis).read() != -1) {
-            }
-            byte[] abyte0 = messagedigest.digest();
-            formatter = new Formatter();
-            for (byte byte0 : abyte0) {
-                formatter.format("%02x", byte0);
-            }
-            return formatter.toString();
-
-        } catch (IOException | NoSuchAlgorithmException e) {
+            return HashService.getInstance().hash(Paths.get(filename), HashService.Algorithm.MD5);
+        } catch (IOException e) {
             return "0";
-        } finally {
-            try {
-                assert fis != null;
-                fis.close();
-            } catch (IOException ignored) {
-            }
-            try {
-                assert dis != null;
-                dis.close();
-            } catch (IOException ignored) {
-            }
-            try {
-                bis.close();
-            } catch (IOException ignored) {
-            }
-            try {
-                assert formatter != null;
-                formatter.close();
-            } catch (Exception ignored) {
-            }
         }
     }
 
@@ -82,31 +41,13 @@ public final class HashUtils {
     }
 
     public static String calculateSHA1(String filePath) {
-        Path path = Paths.get(filePath);
-        MessageDigest md;
         try {
-            md = MessageDigest.getInstance("SHA-1");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-1 algorithm not found", e);
-        }
-        try (FileInputStream fis = new FileInputStream(path.toFile())) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                md.update(buffer, 0, bytesRead);
-            }
+            return HashService.getInstance().hash(Paths.get(filePath), HashService.Algorithm.SHA1);
         } catch (IOException e) {
             Engine.LOGGER.error("Error reading file: " + e.getMessage());
             new File(filePath).delete();
             return "";
         }
-        byte[] digest = md.digest();
-        StringBuilder sb = new StringBuilder();
-        for (byte b : digest) {
-            sb.append(String.format("%02x", b));
-        }
-
-        return sb.toString();
     }
 
 }
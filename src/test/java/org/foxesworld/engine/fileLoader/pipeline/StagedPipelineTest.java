@@ -0,0 +1,178 @@
+package org.foxesworld.engine.fileLoader.pipeline;
+
+import org.apache.logging.log4j.LogManager;
+import org.foxesworld.engine.Engine;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StagedPipelineTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @BeforeAll
+    static void setUpLogger() {
+        if (Engine.LOGGER == null) {
+            Engine.LOGGER = LogManager.getLogger(StagedPipelineTest.class);
+        }
+    }
+
+    @Test
+    void completesAfterCloseOnceEveryItemIsDone() throws Exception {
+        Set<Integer> reached = ConcurrentHashMap.newKeySet();
+        StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>("test", item -> 1)
+                .addStage("first", 2, 4, item -> true)
+                .addStage("second", 2, 4, reached::add)
+                .start();
+
+        for (int i = 0; i < 20; i++) {
+            pipeline.submit(i);
+        }
+        assertFalse(pipeline.getCompletion().isDone());
+        pipeline.close();
+
+        pipeline.getCompletion().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(20, reached.size());
+        assertEquals(20, pipeline.getStats().get(1).processed());
+    }
+
+    @Test
+    void completesAfterCloseWithoutItems() throws Exception {
+        StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>("test", item -> 1)
+                .addStage("only", 1, 1, item -> true)
+                .start();
+
+        pipeline.close();
+
+        pipeline.getCompletion().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertThrows(IllegalStateException.class, () -> pipeline.submit(1));
+    }
+
+    @Test
+    void failingItemIsDroppedWhileOthersGoOn() throws Exception {
+        Set<Integer> reached = ConcurrentHashMap.newKeySet();
+        StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>("test", item -> 1)
+                .addStage("first", 2, 4, item -> {
+                    if (item == 3) {
+                        throw new IllegalArgumentException("item 3");
+                    }
+                    return true;
+                })
+                .addStage("second", 1, 4, reached::add)
+                .start();
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.submit(i);
+        }
+        pipeline.close();
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> pipeline.getCompletion().get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        assertEquals(9, reached.size());
+        assertFalse(reached.contains(3));
+        assertEquals(1, pipeline.getStats().get(0).failed());
+    }
+
+    @Test
+    void slowStageHoldsBackSubmitter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>("test", item -> 1)
+                .addStage("fast", 1, 1, item -> true)
+                .addStage("slow", 1, 1, item -> {
+                    release.await();
+                    return true;
+                })
+                .start();
+
+        AtomicInteger submitted = new AtomicInteger();
+        Thread submitter = new Thread(() -> {
+            try {
+                for (int i = 0; i < 10; i++) {
+                    pipeline.submit(i);
+                    submitted.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "test-submitter");
+        submitter.start();
+
+        // One item in each queue and one in each worker, the fifth submit has to wait
+        waitUntil(() -> submitter.getState() == Thread.State.WAITING && submitted.get() == 4);
+        Thread.sleep(100);
+        assertEquals(4, submitted.get());
+        assertEquals(1, pipeline.getStats().get(1).queued());
+
+        release.countDown();
+        submitter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertEquals(10, submitted.get());
+        pipeline.close();
+        pipeline.getCompletion().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void cancelStopsRunningItemsAndCompletes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>("test", item -> 1)
+                .addStage("blocking", 1, 4, item -> {
+                    started.countDown();
+                    try {
+                        new CountDownLatch(1).await();
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                        throw e;
+                    }
+                    return true;
+                })
+                .start();
+
+        pipeline.submit(1);
+        pipeline.submit(2);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        pipeline.cancel();
+
+        assertTrue(pipeline.getCompletion().isCancelled());
+        waitUntil(interrupted::get);
+        assertThrows(IllegalStateException.class, () -> pipeline.submit(3));
+    }
+
+    @Test
+    void failEndsPipelineWithTheError() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>("test", item -> 1)
+                .addStage("blocking", 1, 4, item -> {
+                    started.countDown();
+                    new CountDownLatch(1).await();
+                    return true;
+                })
+                .start();
+
+        pipeline.submit(1);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        IllegalStateException failure = new IllegalStateException("file list failed");
+        pipeline.fail(failure);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> pipeline.getCompletion().get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(failure, error.getCause());
+        assertThrows(IllegalStateException.class, () -> pipeline.submit(2));
+    }
+
+    private static void waitUntil(Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.call()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not reached in " + TIMEOUT_SECONDS + " s");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.foxesworld.engine.utils.Download;
+
+import com.google.gson.Gson;
+import org.foxesworld.engine.fileLoader.ChunkManifest;
+import org.foxesworld.engine.utils.HashService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaPatcherTest {
+
+    private static final int BLOCK_SIZE = 64;
+    // Ten full blocks and a shorter tail block
+    private static final int FILE_SIZE = BLOCK_SIZE * 10 + 37;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rollingChecksumMatchesChecksumOfEachWindow() {
+        byte[] data = randomBytes(BLOCK_SIZE * 4, 1);
+        DeltaPatcher.RollingChecksum checksum = new DeltaPatcher.RollingChecksum(Arrays.copyOf(data, BLOCK_SIZE));
+        for (int start = 1; start + BLOCK_SIZE <= data.length; start++) {
+            checksum.roll(data[start - 1], data[start + BLOCK_SIZE - 1]);
+            long expected = new DeltaPatcher.RollingChecksum(Arrays.copyOfRange(data, start, start + BLOCK_SIZE)).value();
+            assertEquals(expected, checksum.value(), "window at " + start);
+        }
+    }
+
+    @Test
+    void rebuildsAfterAnInsertedByte() throws IOException {
+        byte[] remote = randomBytes(FILE_SIZE, 2);
+        byte[] local = new byte[remote.length + 1];
+        int inserted = BLOCK_SIZE * 4 + 10;
+        System.arraycopy(remote, 0, local, 0, inserted);
+        local[inserted] = 42;
+        System.arraycopy(remote, inserted, local, inserted + 1, remote.length - inserted);
+
+        List<long[]> ranges = rebuildAndCheck(remote, local);
+
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[]{BLOCK_SIZE * 4L, BLOCK_SIZE * 5L - 1}, ranges.get(0));
+    }
+
+    @Test
+    void rebuildsAfterARemovedByte() throws IOException {
+        byte[] remote = randomBytes(FILE_SIZE, 3);
+        byte[] local = new byte[remote.length - 1];
+        int removed = BLOCK_SIZE * 6 + 5;
+        System.arraycopy(remote, 0, local, 0, removed);
+        System.arraycopy(remote, removed + 1, local, removed, remote.length - removed - 1);
+
+        List<long[]> ranges = rebuildAndCheck(remote, local);
+
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[]{BLOCK_SIZE * 6L, BLOCK_SIZE * 7L - 1}, ranges.get(0));
+    }
+
+    @Test
+    void findsShortTailBlockAtTheEndOfTheLocalFile() throws IOException {
+        byte[] remote = randomBytes(FILE_SIZE, 4);
+        byte[] local = remote.clone();
+        // Only the tail is kept, every full block differs
+        Arrays.fill(local, 0, BLOCK_SIZE * 10, (byte) 7);
+        DeltaPatcher patcher = new DeltaPatcher(manifest(remote));
+
+        Map<Integer, Long> found = patcher.findLocalBlocks(write("local.bin", local));
+
+        assertEquals(Map.of(10, (long) BLOCK_SIZE * 10), found);
+        assertEquals(37, patcher.reusedBytes(found));
+    }
+
+    @Test
+    void mergesConsecutiveMissingBlocksIntoOneRange() throws IOException {
+        byte[] remote = randomBytes(FILE_SIZE, 5);
+        byte[] local = remote.clone();
+        Arrays.fill(local, BLOCK_SIZE * 2, BLOCK_SIZE * 5, (byte) 0);
+        Arrays.fill(local, FILE_SIZE - 37, FILE_SIZE, (byte) 0);
+
+        List<long[]> ranges = rebuildAndCheck(remote, local);
+
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[]{BLOCK_SIZE * 2L, BLOCK_SIZE * 5L - 1}, ranges.get(0));
+        assertArrayEquals(new long[]{BLOCK_SIZE * 10L, FILE_SIZE - 1}, ranges.get(1));
+    }
+
+    // Rebuilds the remote file from the local copy and returns the requested ranges
+    private List<long[]> rebuildAndCheck(byte[] remote, byte[] local) throws IOException {
+        ChunkManifest manifest = manifest(remote);
+        DeltaPatcher patcher = new DeltaPatcher(manifest);
+        File localFile = write("local.bin", local);
+        File target = dir.resolve("target.bin").toFile();
+        List<long[]> ranges = new ArrayList<>();
+
+        Map<Integer, Long> found = patcher.findLocalBlocks(localFile);
+        String hash = patcher.rebuild(localFile, found, target, (from, to) -> {
+            ranges.add(new long[]{from, to});
+            return new ByteArrayInputStream(remote, (int) from, (int) (to - from + 1));
+        }, null);
+
+        assertEquals(manifest.getHash(), hash);
+        assertArrayEquals(remote, Files.readAllBytes(target.toPath()));
+        return ranges;
+    }
+
+    private static ChunkManifest manifest(byte[] remote) {
+        List<Map<String, Object>> chunks = new ArrayList<>();
+        for (int start = 0; start < remote.length; start += BLOCK_SIZE) {
+            byte[] block = Arrays.copyOfRange(remote, start, Math.min(remote.length, start + BLOCK_SIZE));
+            chunks.add(Map.of(
+                    "weak", new DeltaPatcher.RollingChecksum(block).value(),
+                    "strong", HashService.toHex(HashService.Algorithm.MD5.newDigest().digest(block))));
+        }
+        Map<String, Object> manifest = Map.of(
+                "filename", "client.jar",
+                "hash", HashService.toHex(HashService.Algorithm.MD5.newDigest().digest(remote)),
+                "size", remote.length,
+                "blockSize", BLOCK_SIZE,
+                "chunks", chunks);
+        Gson gson = new Gson();
+        return gson.fromJson(gson.toJson(manifest), ChunkManifest.class);
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        return Files.write(dir.resolve(name), content).toFile();
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,71 @@
+package org.foxesworld.engine.utils.Download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void extractsEntriesInsideTargetDirectory() throws IOException {
+        Path archive = archive("natives.zip", "lib/native.so");
+
+        ZipExtractor.extract(archive, dir.resolve("out"));
+
+        assertEquals("lib/native.so", Files.readString(dir.resolve("out/lib/native.so"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsParentDirectoryEntry() throws IOException {
+        Path archive = archive("slip.zip", "../evil.txt");
+
+        assertThrows(IOException.class, () -> ZipExtractor.extract(archive, dir.resolve("out")));
+        assertFalse(Files.exists(dir.resolve("evil.txt")));
+    }
+
+    @Test
+    void rejectsParentDirectoryEntryWhileStreaming() throws IOException {
+        Path archive = archive("slip.zip", "../evil.txt");
+
+        try (InputStream in = Files.newInputStream(archive)) {
+            assertThrows(IOException.class, () -> ZipExtractor.extract(in, dir.resolve("out")));
+        }
+        assertFalse(Files.exists(dir.resolve("evil.txt")));
+    }
+
+    @Test
+    void rejectsAbsolutePathEntry() throws IOException {
+        Path outside = dir.resolve("absolute.txt").toAbsolutePath();
+        Path archive = archive("absolute.zip", outside.toString());
+
+        assertThrows(IOException.class, () -> ZipExtractor.extract(archive, dir.resolve("out")));
+        assertFalse(Files.exists(outside));
+    }
+
+    // Every entry holds its own name as content
+    private Path archive(String name, String... entries) throws IOException {
+        Path archive = dir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(archive);
+             ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            for (String entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.write(entry.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return archive;
+    }
+}